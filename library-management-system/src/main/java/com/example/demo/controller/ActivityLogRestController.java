@@ -1,17 +1,33 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ActivityLogView;
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.filter.JwtAuthenticationDetails;
 import com.example.demo.model.ActivityLog;
+import com.example.demo.service.ActivityLogRetentionJob;
 import com.example.demo.service.ActivityLogService;
+import com.example.demo.service.LiveEventBus;
+import com.example.demo.service.ReservationLedger;
+import com.example.demo.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+// All reads are newest-first keyset pages; pass nextPageToken back as pageToken for the next one.
+// includeArchived=true also searches entries the retention job has moved to the archive files.
 @RestController
 @RequestMapping("/api/activity-logs")
 @CrossOrigin(origins = "http://localhost:4200")
@@ -20,34 +36,130 @@ public class ActivityLogRestController {
     @Autowired
     private ActivityLogService activityLogService;
 
+    @Autowired
+    private ActivityLogRetentionJob activityLogRetentionJob;
+
+    @Autowired
+    private LiveEventBus liveEventBus;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${app.live-feed.timeout-ms:1800000}")
+    private long liveFeedTimeoutMs;
+
+    // Short-lived token for opening the live feed: EventSource cannot send the Authorization header,
+    // so the dashboard fetches one of these and connects to /stream?access_token=<token>, fetching a
+    // fresh one whenever it reconnects
+    @PostMapping("/stream-token")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> streamToken() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Long userId = authentication.getDetails() instanceof JwtAuthenticationDetails details ? details.getUserId() : null;
+        String token = jwtUtil.generateLiveFeedToken(authentication.getName(), "ADMIN", userId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Live feed token issued", token));
+    }
+
+    // Live feed for the admin dashboard, replacing the polling of this endpoint and /api/issues/pending.
+    // Server-Sent Events: "activity" carries each new entry as it is logged, "pending" the number of
+    // pending book requests whenever it changes (and once on connect). EventSource reconnects after
+    // the timeout; comment heartbeats keep proxies from closing an idle stream.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter stream() throws IOException {
+        SseEmitter emitter = new SseEmitter(liveFeedTimeoutMs);
+        LiveEventBus.Subscriber subscriber = (name, data) -> {
+            if (LiveEventBus.HEARTBEAT.equals(name)) {
+                emitter.send(SseEmitter.event().comment(LiveEventBus.HEARTBEAT));
+            } else {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+        };
+        emitter.onCompletion(() -> liveEventBus.unsubscribe(subscriber));
+        emitter.onTimeout(() -> liveEventBus.unsubscribe(subscriber));
+        emitter.onError(e -> liveEventBus.unsubscribe(subscriber));
+
+        // Subscribed before the count is read, so no change between the two is missed
+        liveEventBus.subscribe(subscriber, emitter::complete);
+        try {
+            emitter.send(SseEmitter.event().name("pending").data(reservationLedger.pendingRequests()));
+        } catch (IOException e) {
+            liveEventBus.unsubscribe(subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<ActivityLog>>> getAllActivityLogs() {
-        List<ActivityLog> logs = activityLogService.findAll();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Activity logs retrieved successfully", logs));
+    public ResponseEntity<ApiResponse<CursorPage<ActivityLogView>>> getAllActivityLogs(
+            @RequestParam(required = false) String actionType,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + ActivityLogService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(actionType, userId, bookId, start, end, pageToken, size, includeArchived);
     }
 
     @GetMapping("/action/{actionType}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<ActivityLog>>> getLogsByActionType(@PathVariable String actionType) {
-        List<ActivityLog> logs = activityLogService.findByActionType(actionType);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Activity logs retrieved successfully", logs));
+    public ResponseEntity<ApiResponse<CursorPage<ActivityLogView>>> getLogsByActionType(
+            @PathVariable String actionType,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + ActivityLogService.DEFAULT_PAGE_SIZE) int size) {
+        return page(actionType, null, null, null, null, pageToken, size, false);
     }
 
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<ActivityLog>>> getLogsByUserId(@PathVariable Long userId) {
-        List<ActivityLog> logs = activityLogService.findByUserId(userId);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Activity logs retrieved successfully", logs));
+    public ResponseEntity<ApiResponse<CursorPage<ActivityLogView>>> getLogsByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + ActivityLogService.DEFAULT_PAGE_SIZE) int size) {
+        return page(null, userId, null, null, null, pageToken, size, false);
     }
 
     @GetMapping("/date-range")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<ActivityLog>>> getLogsByDateRange(
+    public ResponseEntity<ApiResponse<CursorPage<ActivityLogView>>> getLogsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        List<ActivityLog> logs = activityLogService.findByDateRange(start, end);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Activity logs retrieved successfully", logs));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + ActivityLogService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(null, null, null, start, end, pageToken, size, includeArchived);
     }
-}
 
+    // Moves entries older than the retention period to the archive now instead of waiting for the nightly run
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> archiveNow() {
+        int moved = activityLogRetentionJob.archiveExpired();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Archived " + moved + " activity log entries", moved));
+    }
+
+    private ResponseEntity<ApiResponse<CursorPage<ActivityLogView>>> page(String actionType, Long userId, Long bookId,
+                                                                     LocalDateTime start, LocalDateTime end,
+                                                                     String pageToken, int size, boolean includeArchived) {
+        try {
+            CursorPage<ActivityLog> logs = activityLogService.findPage(actionType, userId, bookId, start, end,
+                pageToken, size, includeArchived);
+            // Descriptions are rendered here, only for the entries actually served, into views
+            // rather than onto the entities, which may still be managed
+            List<ActivityLogView> views = new ArrayList<>(logs.getItems().size());
+            for (ActivityLog log : logs.getItems()) {
+                views.add(ActivityLogView.from(log, activityLogService.describe(log)));
+            }
+            return ResponseEntity.ok(new ApiResponse<>(true, "Activity logs retrieved successfully",
+                new CursorPage<>(views, logs.getNextPageToken(), logs.isHasMore())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+}
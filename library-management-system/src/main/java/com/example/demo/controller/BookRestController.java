@@ -1,18 +1,29 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.BookListing;
+import com.example.demo.dto.BookRecommendation;
+import com.example.demo.dto.BookSuggestion;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.dto.SearchPage;
 import com.example.demo.model.Book;
 import com.example.demo.model.Category;
 import com.example.demo.model.Issue;
 import com.example.demo.model.User;
+import com.example.demo.service.BookSearchIndex;
 import com.example.demo.service.BookService;
+import com.example.demo.service.BookSuggestIndex;
 import com.example.demo.service.CategoryService;
 import com.example.demo.service.IssueService;
+import com.example.demo.service.RatingService;
+import com.example.demo.service.RecommendationEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -35,12 +46,42 @@ public class BookRestController {
     @Autowired
     private com.example.demo.service.UserService userService;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private RecommendationEngine recommendationEngine;
+
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Book>>> getAllBooks() {
-        List<Book> books = bookService.findAll();
+    public ResponseEntity<ApiResponse<List<BookListing>>> getAllBooks(
+            @RequestParam(defaultValue = "false") boolean withRatings) {
+        List<BookListing> books = bookService.listings(bookService.findAll(), withRatings);
         return ResponseEntity.ok(new ApiResponse<>(true, "Books retrieved successfully", books));
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<BookListing>>> getBooksPage(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + BookService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean withRatings) {
+        try {
+            CursorPage<Book> books = bookService.findPage(sort, direction, pageToken, size);
+            CursorPage<BookListing> page = new CursorPage<>(bookService.listings(books.getItems(), withRatings),
+                books.getNextPageToken(), books.isHasMore());
+            return ResponseEntity.ok(new ApiResponse<>(true, "Books retrieved successfully", page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     @PostMapping("/seed")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> seedBooks() {
@@ -78,6 +119,39 @@ public class BookRestController {
         return ResponseEntity.ok(new ApiResponse<>(true, "10 books seeded successfully", null));
     }
 
+    // Count, average and 1-5 star histogram, from the book's rating aggregate
+    @GetMapping("/{id}/rating")
+    public ResponseEntity<ApiResponse<RatingSummary>> getBookRating(@PathVariable Long id) {
+        if (bookService.findById(id) == null) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "Book not found", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Rating retrieved successfully", ratingService.summary(id)));
+    }
+
+    // Students who borrowed this book also borrowed these, most similar first
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<ApiResponse<List<BookRecommendation>>> getRecommendations(@PathVariable Long id,
+                                                                                   @RequestParam(defaultValue = "10") int limit) {
+        if (bookService.findById(id) == null) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "Book not found", null));
+        }
+        List<RecommendationEngine.Recommendation> neighbours = recommendationEngine.recommend(id, limit);
+        List<Long> ids = neighbours.stream().map(RecommendationEngine.Recommendation::bookId).toList();
+        // Books deleted since the last build are dropped here
+        List<Book> books = bookService.findAllByIdsInOrder(ids);
+        List<BookRecommendation> recommendations = new ArrayList<>(books.size());
+        int next = 0;
+        for (Book book : books) {
+            while (neighbours.get(next).bookId() != book.getId()) {
+                next++;
+            }
+            RecommendationEngine.Recommendation neighbour = neighbours.get(next);
+            recommendations.add(new BookRecommendation(book.getId(), book.getTitle(), book.getAuthor(),
+                neighbour.score(), neighbour.coBorrowers()));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Recommendations retrieved", recommendations));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable Long id) {
         Book book = bookService.findById(id);
@@ -116,19 +190,18 @@ public class BookRestController {
             return ResponseEntity.ok(new ApiResponse<>(false, "Book not found", null));
         }
 
-        int delta = book.getQuantity() - existingBook.getQuantity();
         existingBook.setTitle(book.getTitle());
         existingBook.setAuthor(book.getAuthor());
         existingBook.setGenre(book.getGenre());
-        existingBook.setQuantity(book.getQuantity());
-        existingBook.setAvailable(Math.max(0, existingBook.getAvailable() + delta));
 
         if (book.getCategory() != null && book.getCategory().getId() != null) {
             Category category = categoryService.findById(book.getCategory().getId());
             existingBook.setCategory(category);
         }
 
-        Book updatedBook = bookService.save(existingBook);
+        bookService.save(existingBook);
+        // Quantity and available are adjusted in the database so concurrent circulation isn't overwritten
+        Book updatedBook = bookService.changeQuantity(id, book.getQuantity());
         return ResponseEntity.ok(new ApiResponse<>(true, "Book updated successfully", updatedBook));
     }
 
@@ -159,28 +232,70 @@ public class BookRestController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<Book>>> searchBooks(@RequestParam(required = false) String title,
-                                                               @RequestParam(required = false) String author,
-                                                               @RequestParam(required = false) String genre) {
-        List<Book> allBooks = bookService.findAll();
-        
-        if (title != null && !title.isEmpty()) {
-            allBooks = allBooks.stream()
-                    .filter(b -> b.getTitle().toLowerCase().contains(title.toLowerCase()))
-                    .toList();
+    public ResponseEntity<ApiResponse<SearchPage<Book>>> searchBooks(@RequestParam(required = false) String q,
+                                                                     @RequestParam(required = false) String title,
+                                                                     @RequestParam(required = false) String author,
+                                                                     @RequestParam(required = false) String genre,
+                                                                     @RequestParam(required = false) Boolean fuzzy,
+                                                                     @RequestParam(defaultValue = "2") int maxDistance,
+                                                                     @RequestParam(defaultValue = "0") int page,
+                                                                     @RequestParam(defaultValue = "50") int size) {
+        if (isBlank(q) && isBlank(title) && isBlank(author) && isBlank(genre)) {
+            return ResponseEntity.ok(new ApiResponse<>(false,
+                "Provide q, title, author or genre; use /api/books/page to browse the whole catalog", null));
         }
-        if (author != null && !author.isEmpty()) {
-            allBooks = allBooks.stream()
-                    .filter(b -> b.getAuthor().toLowerCase().contains(author.toLowerCase()))
-                    .toList();
+        int limit = Math.min(Math.max(size, 1), BookService.MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        if (!bookSearchIndex.isReady()) {
+            List<Book> matches = scanBooks(q, title, author, genre);
+            int from = (int) Math.min((long) pageNumber * limit, matches.size());
+            int to = Math.min(from + limit, matches.size());
+            return ResponseEntity.ok(new ApiResponse<>(true, "Search results retrieved",
+                new SearchPage<>(matches.subList(from, to), pageNumber, matches.size(), to < matches.size())));
         }
-        if (genre != null && !genre.isEmpty()) {
-            allBooks = allBooks.stream()
-                    .filter(b -> b.getGenre() != null && b.getGenre().toLowerCase().contains(genre.toLowerCase()))
-                    .toList();
+
+        // Ranked ids come from the in-memory index; only the requested page is loaded from the database.
+        // fuzzy=true forces typo-tolerant matching; when fuzzy is not given it is used only if nothing matched exactly.
+        boolean useFuzzy = Boolean.TRUE.equals(fuzzy);
+        List<Long> ids = useFuzzy ? List.of() : bookSearchIndex.search(q, title, author, genre);
+        if (useFuzzy || (ids.isEmpty() && fuzzy == null)) {
+            ids = bookSearchIndex.fuzzySearch(q, title, author, genre, maxDistance);
+            useFuzzy = true;
+        }
+
+        int from = (int) Math.min((long) pageNumber * limit, ids.size());
+        int to = Math.min(from + limit, ids.size());
+        List<Book> books = bookService.findAllByIdsInOrder(ids.subList(from, to));
+
+        String message = (useFuzzy ? "Fuzzy search" : "Search") + " results retrieved";
+        return ResponseEntity.ok(new ApiResponse<>(true, message,
+            new SearchPage<>(books, pageNumber, ids.size(), to < ids.size())));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<BookSuggestion>>> suggestBooks(@RequestParam(required = false) String q,
+                                                                          @RequestParam(defaultValue = "8") int limit) {
+        List<BookSuggestion> suggestions = bookSuggestIndex.suggest(q, limit);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggestions retrieved", suggestions));
+    }
+
+    // Full scan used only while the search index is still being built at startup; q matches any field
+    private List<Book> scanBooks(String q, String title, String author, String genre) {
+        return bookService.findAll().stream()
+                .filter(b -> contains(b.getTitle(), title) && contains(b.getAuthor(), author) && contains(b.getGenre(), genre))
+                .filter(b -> isBlank(q) || contains(b.getTitle(), q) || contains(b.getAuthor(), q) || contains(b.getGenre(), q))
+                .toList();
+    }
+
+    private static boolean contains(String text, String criterion) {
+        if (isBlank(criterion)) {
+            return true;
         }
+        return text != null && text.toLowerCase().contains(criterion.trim().toLowerCase());
+    }
 
-        return ResponseEntity.ok(new ApiResponse<>(true, "Search results retrieved", allBooks));
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 
     @GetMapping("/available")
@@ -2,33 +2,33 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.ApiResponse;
 import com.example.demo.dto.ContactRequest;
+import com.example.demo.dto.CursorPage;
 import com.example.demo.model.Contact;
+import com.example.demo.service.ContactIntake;
 import com.example.demo.service.ContactService;
-import com.example.demo.service.EmailService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/contact")
 @CrossOrigin(origins = "http://localhost:4200")
 public class ContactRestController {
 
-    @Autowired
-    private EmailService emailService;
-
     @Autowired
     private ContactService contactService;
 
-    @Value("${spring.mail.username:}")
-    private String adminEmail;
+    @Autowired
+    private ContactIntake contactIntake;
 
     @PostMapping("/send")
-    public ResponseEntity<ApiResponse<String>> sendContactEmail(@RequestBody ContactRequest contactRequest) {
+    public ResponseEntity<ApiResponse<String>> sendContactEmail(@RequestBody ContactRequest contactRequest,
+                                                                HttpServletRequest httpRequest) {
         try {
             // Validate request
             if (contactRequest.getName() == null || contactRequest.getName().trim().isEmpty()) {
@@ -44,63 +44,58 @@ public class ContactRestController {
                 return ResponseEntity.ok(new ApiResponse<>(false, "Message is required", null));
             }
 
-            // Save contact submission to database
             Contact contact = new Contact(
                 contactRequest.getName(),
                 contactRequest.getEmail(),
                 contactRequest.getSubject(),
                 contactRequest.getMessage()
             );
-            contactService.save(contact);
-
-            // Send email to admin/library
-            String adminEmailToUse = adminEmail != null && !adminEmail.trim().isEmpty() 
-                ? adminEmail 
-                : "library@example.com"; // Default admin email
-            
-            String emailSubject = "Contact Form: " + contactRequest.getSubject();
-            String emailBody = String.format(
-                "You have received a new contact form submission:\n\n" +
-                "Name: %s\n" +
-                "Email: %s\n" +
-                "Subject: %s\n\n" +
-                "Message:\n%s\n\n" +
-                "---\n" +
-                "This email was sent from the Library Management System contact form.",
-                contactRequest.getName(),
-                contactRequest.getEmail(),
-                contactRequest.getSubject(),
-                contactRequest.getMessage()
-            );
-
-            emailService.sendEmail(adminEmailToUse, emailSubject, emailBody);
-
-            // Send confirmation email to user
-            String confirmationSubject = "Thank You for Contacting Us - Library Management System";
-            String confirmationBody = String.format(
-                "Dear %s,\n\n" +
-                "Thank you for contacting us. We have received your message:\n\n" +
-                "Subject: %s\n\n" +
-                "We will get back to you as soon as possible.\n\n" +
-                "Best regards,\n" +
-                "Library Management System Team",
-                contactRequest.getName(),
-                contactRequest.getSubject()
-            );
-
-            emailService.sendEmail(contactRequest.getEmail(), confirmationSubject, confirmationBody);
+            // Stored, with the notification and confirmation queued, before this returns. The socket
+            // address is used rather than X-Forwarded-For, which any client can set.
+            ContactIntake.Admission admission = contactIntake.submit(contact, httpRequest.getRemoteAddr());
+            if (admission == ContactIntake.Admission.RATE_LIMITED) {
+                return ResponseEntity.ok(new ApiResponse<>(false, "Too many messages. Please try again later.", null));
+            }
 
-            return ResponseEntity.ok(new ApiResponse<>(true, "Your message has been sent successfully. We will get back to you soon.", null));
+            // A duplicate gets the same answer as the original, which was already stored
+            return ResponseEntity.ok(new ApiResponse<>(true, "Your message has been received. We will get back to you soon.", null));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Failed to send message. Please try again later.", null));
         }
     }
 
+    // Newest first; read=false for the unread inbox. Pass nextPageToken back as pageToken for the next page.
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Contact>>> getAllContacts() {
-        List<Contact> contacts = contactService.findAll();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Contact messages retrieved successfully", contacts));
+    public ResponseEntity<ApiResponse<CursorPage<Contact>>> getAllContacts(
+            @RequestParam(required = false) Boolean read,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + ContactService.DEFAULT_PAGE_SIZE) int size) {
+        try {
+            CursorPage<Contact> contacts = contactService.findPage(read, pageToken, size);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Contact messages retrieved successfully", contacts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/count")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> countContacts() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("total", contactService.count());
+        counts.put("unread", contactService.countUnread());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Contact message counts retrieved successfully", counts));
+    }
+
+    @PutMapping("/{id}/read")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> markRead(@PathVariable Long id,
+                                                        @RequestParam(defaultValue = "true") boolean read) {
+        if (!contactService.markRead(id, read)) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "Contact message not found", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, read ? "Marked as read" : "Marked as unread", null));
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,43 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.EmailQueueStats;
+import com.example.demo.model.QueuedEmail;
+import com.example.demo.service.EmailQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Monitoring and dead-letter handling for the outgoing mail queue
+@RestController
+@RequestMapping("/api/admin/email-queue")
+@CrossOrigin(origins = "http://localhost:4200")
+public class EmailQueueRestController {
+
+    @Autowired
+    private EmailQueue emailQueue;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<EmailQueueStats>> getStats() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Email queue statistics retrieved", emailQueue.stats()));
+    }
+
+    @GetMapping("/dead")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<QueuedEmail>>> getDeadLetters(@RequestParam(defaultValue = "50") int limit) {
+        List<QueuedEmail> dead = emailQueue.deadLetters(Math.min(Math.max(limit, 1), 500));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Dead-lettered emails retrieved", dead));
+    }
+
+    // Puts every dead-lettered email back in the queue with a fresh retry budget
+    @PostMapping("/dead/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> retryDeadLetters() {
+        int requeued = emailQueue.requeueDead();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Requeued " + requeued + " emails", requeued));
+    }
+}
@@ -1,9 +1,10 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedbackView;
 import com.example.demo.model.Book;
 import com.example.demo.model.Feedback;
-import com.example.demo.model.User;
 import com.example.demo.service.BookService;
 import com.example.demo.service.FeedbackService;
 import com.example.demo.service.UserService;
@@ -12,7 +13,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/feedback")
@@ -28,15 +28,17 @@ public class FeedbackRestController {
     @Autowired
     private UserService userService;
 
+    // All feedback lists are newest first; pass nextPageToken back as pageToken for the next page
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Feedback>>> getAllFeedback() {
-        List<Feedback> feedbacks = feedbackService.findAll();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback retrieved successfully", feedbacks));
+    public ResponseEntity<ApiResponse<CursorPage<FeedbackView>>> getAllFeedback(
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + FeedbackService.DEFAULT_PAGE_SIZE) int size) {
+        return page(null, null, pageToken, size);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Feedback>> getFeedbackById(@PathVariable Long id) {
-        Feedback feedback = feedbackService.findById(id);
+    public ResponseEntity<ApiResponse<FeedbackView>> getFeedbackById(@PathVariable Long id) {
+        FeedbackView feedback = feedbackService.findViewById(id);
         if (feedback != null) {
             return ResponseEntity.ok(new ApiResponse<>(true, "Feedback retrieved successfully", feedback));
         }
@@ -44,28 +46,30 @@ public class FeedbackRestController {
     }
 
     @GetMapping("/book/{bookId}")
-    public ResponseEntity<ApiResponse<List<Feedback>>> getFeedbackByBook(@PathVariable Long bookId) {
-        Book book = bookService.findById(bookId);
-        if (book == null) {
+    public ResponseEntity<ApiResponse<CursorPage<FeedbackView>>> getFeedbackByBook(
+            @PathVariable Long bookId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + FeedbackService.DEFAULT_PAGE_SIZE) int size) {
+        if (bookService.findById(bookId) == null) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Book not found", null));
         }
-        List<Feedback> feedbacks = feedbackService.findByBookOrderByCreatedAtDesc(book);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback retrieved successfully", feedbacks));
+        return page(bookId, null, pageToken, size);
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse<List<Feedback>>> getFeedbackByUser(@PathVariable Long userId) {
-        User user = userService.findById(userId);
-        if (user == null) {
+    public ResponseEntity<ApiResponse<CursorPage<FeedbackView>>> getFeedbackByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + FeedbackService.DEFAULT_PAGE_SIZE) int size) {
+        if (userService.findById(userId) == null) {
             return ResponseEntity.ok(new ApiResponse<>(false, "User not found", null));
         }
-        List<Feedback> feedbacks = feedbackService.findByUser(user);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback retrieved successfully", feedbacks));
+        return page(null, userId, pageToken, size);
     }
 
     @PostMapping
     @PreAuthorize("hasAnyRole('STUDENT', 'ADMIN')")
-    public ResponseEntity<ApiResponse<Feedback>> createFeedback(@RequestBody Feedback feedback) {
+    public ResponseEntity<ApiResponse<FeedbackView>> createFeedback(@RequestBody Feedback feedback) {
         if (feedback.getRating() < 1 || feedback.getRating() > 5) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Rating must be between 1 and 5", null));
         }
@@ -76,13 +80,14 @@ public class FeedbackRestController {
         }
 
         feedback.setBook(book);
-        Feedback savedFeedback = feedbackService.save(feedback);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback submitted successfully", savedFeedback));
+        Feedback savedFeedback = feedbackService.create(feedback);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback submitted successfully",
+            feedbackService.findViewById(savedFeedback.getId())));
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('STUDENT', 'ADMIN')")
-    public ResponseEntity<ApiResponse<Feedback>> updateFeedback(@PathVariable Long id, @RequestBody Feedback feedback) {
+    public ResponseEntity<ApiResponse<FeedbackView>> updateFeedback(@PathVariable Long id, @RequestBody Feedback feedback) {
         Feedback existingFeedback = feedbackService.findById(id);
         if (existingFeedback == null) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Feedback not found", null));
@@ -92,26 +97,29 @@ public class FeedbackRestController {
             return ResponseEntity.ok(new ApiResponse<>(false, "Rating must be between 1 and 5", null));
         }
 
-        existingFeedback.setComment(feedback.getComment());
-        existingFeedback.setRating(feedback.getRating());
-        Feedback updatedFeedback = feedbackService.save(existingFeedback);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback updated successfully", updatedFeedback));
+        Feedback updatedFeedback = feedbackService.update(id, feedback.getRating(), feedback.getComment());
+        if (updatedFeedback == null) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "Feedback not found", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback updated successfully",
+            feedbackService.findViewById(updatedFeedback.getId())));
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Void>> deleteFeedback(@PathVariable Long id) {
-        Feedback feedback = feedbackService.findById(id);
-        if (feedback == null) {
+        if (!feedbackService.delete(id)) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Feedback not found", null));
         }
-
-        feedbackService.deleteById(id);
         return ResponseEntity.ok(new ApiResponse<>(true, "Feedback deleted successfully", null));
     }
-}
-
-
-
-
 
+    private ResponseEntity<ApiResponse<CursorPage<FeedbackView>>> page(Long bookId, Long userId, String pageToken, int size) {
+        try {
+            CursorPage<FeedbackView> feedbacks = feedbackService.findPage(bookId, userId, pageToken, size);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Feedback retrieved successfully", feedbacks));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.BatchDecisionRequest;
+import com.example.demo.dto.BookRequestReceipt;
+import com.example.demo.dto.CirculationResult;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.IssueView;
+import com.example.demo.filter.JwtAuthenticationDetails;
 import com.example.demo.model.Book;
 import com.example.demo.model.Issue;
 import com.example.demo.model.User;
@@ -9,6 +15,7 @@ import com.example.demo.service.IssueService;
 import com.example.demo.service.UserService;
 import com.example.demo.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -16,7 +23,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -40,7 +47,16 @@ public class IssueRestController {
     private com.example.demo.service.ActivityLogService activityLogService;
 
     @Autowired
-    private com.example.demo.service.EmailService emailService;
+    private com.example.demo.service.BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private com.example.demo.service.ReservationLedger reservationLedger;
+
+    @Autowired
+    private com.example.demo.service.BookRequestWriter bookRequestWriter;
+
+    @Autowired
+    private com.example.demo.service.LiveEventBus liveEventBus;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -70,18 +86,43 @@ public class IssueRestController {
 
     @GetMapping("/active")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Issue>>> getActiveIssues() {
-        List<Issue> issues = issueService.findAll().stream()
-                .filter(i -> !i.isReturned() && (i.getStatus() == null || "APPROVED".equals(i.getStatus())))
-                .toList();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Active issues retrieved", issues));
+    public ResponseEntity<ApiResponse<CursorPage<IssueView>>> getActiveIssues(
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + IssueService.DEFAULT_PAGE_SIZE) int size) {
+        return issuePage(IssueService.View.ACTIVE, "Active issues retrieved", studentId, bookId, sort, direction, pageToken, size);
     }
 
     @GetMapping("/returned")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Issue>>> getReturnedIssues() {
-        List<Issue> issues = issueService.findAllReturned();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Returned issues retrieved", issues));
+    public ResponseEntity<ApiResponse<CursorPage<IssueView>>> getReturnedIssues(
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + IssueService.DEFAULT_PAGE_SIZE) int size) {
+        return issuePage(IssueService.View.RETURNED, "Returned issues retrieved", studentId, bookId, sort, direction, pageToken, size);
+    }
+
+    // The ledger already counts the change (it is updated on commit), so this costs no query
+    private void publishPendingCount() {
+        liveEventBus.publish("pending", reservationLedger.pendingRequests());
+    }
+
+    // Filtering, ordering and paging happen in the database; see IssueService.View for the sortable columns
+    private ResponseEntity<ApiResponse<CursorPage<IssueView>>> issuePage(IssueService.View view, String message,
+                                                                        Long studentId, Long bookId, String sort,
+                                                                        String direction, String pageToken, int size) {
+        try {
+            CursorPage<IssueView> page = issueService.findPage(view, studentId, bookId, sort, direction, pageToken, size);
+            return ResponseEntity.ok(new ApiResponse<>(true, message, page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
     }
 
     @PostMapping
@@ -100,37 +141,36 @@ public class IssueRestController {
 
         issue.setBook(book);
         issue.setStudent(student);
-        issue.setIssueDate(LocalDate.now());
-        issue.setReturnDate(LocalDate.now().plusDays(7));
-        issue.setReturned(false);
-        issue.setFine(0);
-
-        Issue savedIssue = issueService.save(issue);
 
-        book.setAvailable(book.getAvailable() - 1);
-        bookService.save(book);
+        // Copy decrement and Issue insert happen atomically in one transaction
+        CirculationResult result;
+        try {
+            result = issueService.issueBook(issue);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent issue or request for the same student and book won the unique constraint
+            return ResponseEntity.ok(new ApiResponse<>(false, "Student already has a request for this book or it's already issued", null));
+        }
+        if (!result.isSuccess()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, result.getMessage(), null));
+        }
+        Issue savedIssue = result.getIssue();
+        bookSuggestIndex.recordIssue(book.getId());
 
-        // Log activity
+        // Log activity (the confirmation email was queued with the issue)
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User admin = userService.findByUsername(auth.getName());
         activityLogService.logBookIssued(book, student);
 
-        // Send email notification if email exists
-        if (student.getEmail() != null && !student.getEmail().isEmpty()) {
-            emailService.sendBookIssuedConfirmation(
-                student.getEmail(),
-                book.getTitle(),
-                savedIssue.getIssueDate().toString(),
-                savedIssue.getReturnDate().toString()
-            );
-        }
-
         return ResponseEntity.ok(new ApiResponse<>(true, "Book issued successfully", savedIssue));
     }
 
+    // Admission is decided in memory, without loading the student or the book: the student id
+    // comes from the token and the book's shelf count from the reservation ledger. An admitted
+    // request is acknowledged before it is stored (see BookRequestReceipt); it is written in the
+    // background and, should that fail, its reservation is released and the pending count republished.
     @PostMapping("/request")
     @PreAuthorize("hasAnyRole('ADMIN', 'STUDENT')")
-    public ResponseEntity<ApiResponse<Issue>> requestBook(@RequestBody Book bookRequest) {
+    public ResponseEntity<ApiResponse<BookRequestReceipt>> requestBook(@RequestBody Book bookRequest) {
         try {
             // Get current authenticated user from SecurityContext
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -138,175 +178,183 @@ public class IssueRestController {
                 return ResponseEntity.ok(new ApiResponse<>(false, "User not authenticated", null));
             }
 
-            String username = authentication.getName();
-            User student = userService.findByUsername(username);
-            Book book = bookService.findById(bookRequest.getId());
-
-            if (student == null || book == null) {
+            Long studentId = currentUserId(authentication);
+            Long bookId = bookRequest.getId();
+            if (studentId == null || bookId == null) {
                 return ResponseEntity.ok(new ApiResponse<>(false, "Student or book not found", null));
             }
 
-            if (book.getAvailable() <= 0) {
-                return ResponseEntity.ok(new ApiResponse<>(false, "Book is not available", null));
+            // Admission is decided by the in-memory ledger: one copy per pending request, one hold per student
+            switch (reservationLedger.tryReserve(bookId, studentId)) {
+                case NOT_FOUND:
+                    return ResponseEntity.ok(new ApiResponse<>(false, "Student or book not found", null));
+                case DUPLICATE:
+                    return ResponseEntity.ok(new ApiResponse<>(false, "You already have a request for this book or it's already issued", null));
+                case UNAVAILABLE:
+                    return ResponseEntity.ok(new ApiResponse<>(false, "Book is not available", null));
+                default:
+                    break;
             }
 
-            // Check if student already has this book issued and not returned
-            List<Issue> existingIssues = issueService.findByStudent(student);
-            boolean alreadyIssued = existingIssues.stream()
-                .anyMatch(i -> i.getBook().getId().equals(book.getId()) && !i.isReturned() && !"REJECTED".equals(i.getStatus()));
-            
-            if (alreadyIssued) {
-                return ResponseEntity.ok(new ApiResponse<>(false, "You already have a request for this book or it's already issued", null));
-            }
+            // Stored as PENDING and logged in the background
+            LocalDate today = LocalDate.now();
+            bookRequestWriter.submit(studentId, bookId, today);
+            publishPendingCount();
 
-            // Check if there's already a pending request for this book
-            boolean pendingRequest = existingIssues.stream()
-                .anyMatch(i -> i.getBook().getId().equals(book.getId()) && "PENDING".equals(i.getStatus()));
-            
-            if (pendingRequest) {
-                return ResponseEntity.ok(new ApiResponse<>(false, "You already have a pending request for this book", null));
-            }
-
-            // Create a PENDING request (not issued yet)
-            Issue issue = new Issue();
-            issue.setBook(book);
-            issue.setStudent(student);
-            issue.setStatus("PENDING");
-            issue.setRequestedDate(LocalDate.now());
-            // Don't set issueDate, returnDate yet - only set when approved
-            issue.setReturned(false);
-            issue.setFine(0);
-
-            Issue savedIssue = issueService.save(issue);
-
-            // Log activity - book requested (not issued yet)
-            activityLogService.save(new com.example.demo.model.ActivityLog(
-                "BOOK_REQUESTED",
-                String.format("Student %s requested book: %s", student.getUsername(), book.getTitle()),
-                student,
-                book
-            ));
-
-            return ResponseEntity.ok(new ApiResponse<>(true, "Book request submitted. Waiting for admin approval.", savedIssue));
+            return ResponseEntity.ok(new ApiResponse<>(true, "Book request submitted. Waiting for admin approval.",
+                new BookRequestReceipt(bookId, studentId, today)));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse<>(false, "Error requesting book: " + e.getMessage(), null));
         }
     }
+
+    // From the token; tokens issued without a userId claim fall back to a lookup by name
+    private Long currentUserId(Authentication authentication) {
+        if (authentication.getDetails() instanceof JwtAuthenticationDetails details && details.getUserId() != null) {
+            return details.getUserId();
+        }
+        User user = userService.findByUsername(authentication.getName());
+        return user != null ? user.getId() : null;
+    }
     
     @GetMapping("/pending")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Issue>>> getPendingRequests() {
-        List<Issue> pendingRequests = issueService.findPendingRequests();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Pending requests retrieved", pendingRequests));
+    public ResponseEntity<ApiResponse<CursorPage<IssueView>>> getPendingRequests(
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "" + IssueService.DEFAULT_PAGE_SIZE) int size) {
+        return issuePage(IssueService.View.PENDING, "Pending requests retrieved", studentId, bookId, sort, direction, pageToken, size);
     }
     
     @PostMapping("/{id}/approve")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Issue>> approveRequest(@PathVariable Long id) {
-        Issue issue = issueService.findById(id);
-        if (issue == null) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Request not found", null));
-        }
-        
-        if (!"PENDING".equals(issue.getStatus())) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Request is not pending", null));
-        }
-        
-        Book book = issue.getBook();
-        if (book.getAvailable() <= 0) {
-            // Reject automatically if book is no longer available
-            issue.setStatus("REJECTED");
-            issueService.save(issue);
-            return ResponseEntity.ok(new ApiResponse<>(false, "Book is no longer available. Request rejected.", null));
+        // Availability check, copy decrement and status change run as one transaction
+        CirculationResult result = issueService.approveRequest(id);
+        if (!result.isSuccess()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, result.getMessage(), null));
         }
+
+        Issue savedIssue = result.getIssue();
+        Book book = savedIssue.getBook();
+        bookSuggestIndex.recordIssue(book.getId());
+        publishPendingCount();
         
-        // Approve the request - issue the book
-        issue.setStatus("APPROVED");
-        issue.setIssueDate(LocalDate.now());
-        issue.setReturnDate(LocalDate.now().plusDays(7));
-        
-        Issue savedIssue = issueService.save(issue);
-        
-        // Decrease book availability
-        book.setAvailable(book.getAvailable() - 1);
-        bookService.save(book);
-        
-        // Log activity
-        activityLogService.logBookIssued(book, issue.getStudent());
-        
-        // Send email notification if email exists
-        if (issue.getStudent().getEmail() != null && !issue.getStudent().getEmail().isEmpty()) {
-            emailService.sendBookIssuedConfirmation(
-                issue.getStudent().getEmail(),
-                book.getTitle(),
-                savedIssue.getIssueDate().toString(),
-                savedIssue.getReturnDate().toString()
-            );
-        }
+        // Log activity (the confirmation email was queued with the approval)
+        activityLogService.logBookIssued(book, savedIssue.getStudent());
         
-        return ResponseEntity.ok(new ApiResponse<>(true, "Book request approved and issued successfully", savedIssue));
+        return ResponseEntity.ok(new ApiResponse<>(true, result.getMessage(), savedIssue));
     }
     
     @PostMapping("/{id}/reject")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Issue>> rejectRequest(@PathVariable Long id) {
-        Issue issue = issueService.findById(id);
-        if (issue == null) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Request not found", null));
-        }
-        
-        if (!"PENDING".equals(issue.getStatus())) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Request is not pending", null));
+        CirculationResult result = issueService.rejectRequest(id);
+        if (!result.isSuccess()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, result.getMessage(), null));
         }
-        
-        // Reject the request
-        issue.setStatus("REJECTED");
-        Issue savedIssue = issueService.save(issue);
+        Issue savedIssue = result.getIssue();
+        publishPendingCount();
         
         // Log activity
-        activityLogService.save(new com.example.demo.model.ActivityLog(
-            "BOOK_REQUEST_REJECTED",
-            String.format("Admin rejected book request: %s by student %s", issue.getBook().getTitle(), issue.getStudent().getUsername()),
-            issue.getStudent(),
-            issue.getBook()
-        ));
+        activityLogService.save(activityLogService.bookRequestRejected(savedIssue.getBook(), savedIssue.getStudent()));
         
-        return ResponseEntity.ok(new ApiResponse<>(true, "Book request rejected", savedIssue));
+        return ResponseEntity.ok(new ApiResponse<>(true, result.getMessage(), savedIssue));
     }
 
-    @PostMapping("/{id}/return")
+    // Approves or rejects a list of pending requests in one transaction and reports each one.
+    // Confirmation emails are queued inside that transaction; activity entries are written once afterwards.
+    @PostMapping("/batch")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Issue>> returnBook(@PathVariable Long id) {
-        Issue issue = issueService.findById(id);
-        if (issue == null || issue.isReturned()) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Issue not found or already returned", null));
+    public ResponseEntity<ApiResponse<List<CirculationResult>>> decideRequests(@RequestBody BatchDecisionRequest request) {
+        boolean approve = "APPROVE".equalsIgnoreCase(request.getAction());
+        if (!approve && !"REJECT".equalsIgnoreCase(request.getAction())) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "Action must be APPROVE or REJECT", null));
+        }
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "No request ids given", null));
         }
 
-        issue.setReturned(true);
+        List<CirculationResult> results;
+        try {
+            results = issueService.decideRequests(request.getIds(), approve);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        publishPendingCount();
 
-        // Calculate fine
-        LocalDate today = LocalDate.now();
-        if (today.isAfter(issue.getReturnDate())) {
-            long lateDays = ChronoUnit.DAYS.between(issue.getReturnDate(), today);
-            int fine = (int) (lateDays * 10);
-            issue.setFine(fine);
-        } else {
-            issue.setFine(0);
+        List<com.example.demo.model.ActivityLog> logs = new ArrayList<>();
+        int succeeded = 0;
+        for (CirculationResult result : results) {
+            if (!result.isSuccess()) {
+                continue;
+            }
+            succeeded++;
+            Issue issue = result.getIssue();
+            Book book = issue.getBook();
+            User student = issue.getStudent();
+            if (!approve) {
+                logs.add(activityLogService.bookRequestRejected(book, student));
+                continue;
+            }
+            bookSuggestIndex.recordIssue(book.getId());
+            logs.add(activityLogService.bookIssued(book, student));
         }
+        activityLogService.saveAll(logs);
 
-        Issue updatedIssue = issueService.save(issue);
+        String message = String.format("Processed %d requests: %d succeeded, %d failed",
+            results.size(), succeeded, results.size() - succeeded);
+        return ResponseEntity.ok(new ApiResponse<>(true, message, results));
+    }
 
-        Book book = issue.getBook();
-        if (book != null) {
-            book.setAvailable(book.getAvailable() + 1);
-            bookService.save(book);
+    @PostMapping("/{id}/return")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Issue>> returnBook(@PathVariable Long id) {
+        // Fine, return flag and copy increment are applied atomically
+        CirculationResult result = issueService.returnBook(id);
+        if (!result.isSuccess()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, result.getMessage(), null));
         }
+        Issue updatedIssue = result.getIssue();
 
         // Log activity
         User student = updatedIssue.getStudent();
-        activityLogService.logBookReturned(book, student);
+        activityLogService.logBookReturned(updatedIssue.getBook(), student);
+
+        return ResponseEntity.ok(new ApiResponse<>(true, result.getMessage(), updatedIssue));
+    }
+
+    // Returns a scanned stack of loans in one call; body is a JSON array of issue ids
+    @PostMapping("/return/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<CirculationResult>>> returnBooks(@RequestBody List<Long> issueIds) {
+        if (issueIds == null || issueIds.isEmpty()) {
+            return ResponseEntity.ok(new ApiResponse<>(false, "No issue ids given", null));
+        }
+
+        List<CirculationResult> results;
+        try {
+            results = issueService.returnBooks(issueIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(new ApiResponse<>(false, e.getMessage(), null));
+        }
 
-        return ResponseEntity.ok(new ApiResponse<>(true, "Book returned successfully", updatedIssue));
+        List<com.example.demo.model.ActivityLog> logs = new ArrayList<>();
+        int totalFine = 0;
+        for (CirculationResult result : results) {
+            if (result.isSuccess()) {
+                Issue issue = result.getIssue();
+                logs.add(activityLogService.bookReturned(issue.getBook(), issue.getStudent()));
+                totalFine += issue.getFine();
+            }
+        }
+        activityLogService.saveAll(logs);
+
+        String message = String.format("Returned %d of %d books, total fine ₹%d", logs.size(), results.size(), totalFine);
+        return ResponseEntity.ok(new ApiResponse<>(true, message, results));
     }
 
     @GetMapping("/user/{userId}/summary")
@@ -348,4 +396,3 @@ public class IssueRestController {
     }
 }
 
-
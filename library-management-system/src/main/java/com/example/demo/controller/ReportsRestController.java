@@ -164,13 +164,7 @@ public class ReportsRestController {
     @GetMapping("/overdue-books")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getOverdueBooks() {
-        List<Issue> activeIssues = issueService.findAll().stream()
-            .filter(i -> !i.isReturned())
-            .filter(i -> {
-                LocalDate returnDate = i.getReturnDate();
-                return returnDate != null && LocalDate.now().isAfter(returnDate);
-            })
-            .collect(Collectors.toList());
+        List<Issue> activeIssues = issueService.findOverdue(LocalDate.now());
 
         List<Map<String, Object>> result = activeIssues.stream()
             .map(issue -> {
@@ -203,10 +197,7 @@ public class ReportsRestController {
         stats.put("totalIssues", allIssues.size());
         stats.put("activeIssues", allIssues.stream().filter(i -> !i.isReturned()).count());
         stats.put("returnedIssues", allIssues.stream().filter(Issue::isReturned).count());
-        stats.put("overdueIssues", allIssues.stream()
-            .filter(i -> !i.isReturned())
-            .filter(i -> i.getReturnDate() != null && LocalDate.now().isAfter(i.getReturnDate()))
-            .count());
+        stats.put("overdueIssues", issueService.countOverdue(LocalDate.now()));
         stats.put("totalFine", allIssues.stream().mapToInt(Issue::getFine).sum());
         
         return ResponseEntity.ok(new ApiResponse<>(true, "Statistics retrieved", stats));
@@ -32,9 +32,6 @@ public class UserRestController {
     @Autowired
     private com.example.demo.service.ActivityLogService activityLogService;
 
-    @Autowired
-    private com.example.demo.service.EmailService emailService;
-
     @Autowired
     private IssueService issueService;
 
@@ -71,17 +68,12 @@ public class UserRestController {
             org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
         User admin = userService.findByUsername(auth.getName());
         
-        user.setStatus("APPROVED");
-        User updatedUser = userService.save(user);
+        // Status change and approval email are committed together
+        User updatedUser = userService.approve(user);
         
         // Log activity
         activityLogService.logUserApproved(user, admin);
         
-        // Send email notification if email exists
-        if (user.getEmail() != null && !user.getEmail().isEmpty()) {
-            emailService.sendAccountApprovalNotification(user.getEmail(), user.getUsername());
-        }
-        
         return ResponseEntity.ok(new ApiResponse<>(true, "User approved successfully", updatedUser));
     }
 
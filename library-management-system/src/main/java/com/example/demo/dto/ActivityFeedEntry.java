@@ -0,0 +1,91 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.ActivityLog;
+
+import java.time.LocalDateTime;
+
+// One activity entry as pushed to the live feed. Built when the entry is logged, before it is
+// written, so it carries no id; user and book are reduced to the fields the dashboard shows.
+public class ActivityFeedEntry {
+    private String actionType;
+    private String description;
+    private Long userId;
+    private String username;
+    private Long bookId;
+    private String bookTitle;
+    private LocalDateTime createdAt;
+
+    public ActivityFeedEntry() {}
+
+    public static ActivityFeedEntry from(ActivityLog log, String description) {
+        ActivityFeedEntry entry = new ActivityFeedEntry();
+        entry.actionType = log.getActionType();
+        entry.description = description;
+        entry.createdAt = log.getCreatedAt();
+        if (log.getUser() != null) {
+            entry.userId = log.getUser().getId();
+            entry.username = log.getUser().getUsername();
+        }
+        if (log.getBook() != null) {
+            entry.bookId = log.getBook().getId();
+            entry.bookTitle = log.getBook().getTitle();
+        }
+        return entry;
+    }
+
+    public String getActionType() {
+        return actionType;
+    }
+
+    public void setActionType(String actionType) {
+        this.actionType = actionType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
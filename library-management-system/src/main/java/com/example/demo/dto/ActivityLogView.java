@@ -0,0 +1,111 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.ActivityLog;
+
+import java.time.LocalDateTime;
+
+// One activity entry as served by the activity log API, with its description rendered. User and
+// book are reduced to their id and name, so the entity itself is never serialised or written to.
+public class ActivityLogView {
+    private Long id;
+    private String actionType;
+    private String description;
+    private Long subjectId;
+    private Long userId;
+    private String username;
+    private Long bookId;
+    private String bookTitle;
+    private LocalDateTime createdAt;
+
+    public ActivityLogView() {}
+
+    public static ActivityLogView from(ActivityLog log, String description) {
+        ActivityLogView view = new ActivityLogView();
+        view.id = log.getId();
+        view.actionType = log.getActionType();
+        view.description = description;
+        view.subjectId = log.getSubjectId();
+        view.createdAt = log.getCreatedAt();
+        if (log.getUser() != null) {
+            view.userId = log.getUser().getId();
+            view.username = log.getUser().getUsername();
+        }
+        if (log.getBook() != null) {
+            view.bookId = log.getBook().getId();
+            view.bookTitle = log.getBook().getTitle();
+        }
+        return view;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getActionType() {
+        return actionType;
+    }
+
+    public void setActionType(String actionType) {
+        this.actionType = actionType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public void setSubjectId(Long subjectId) {
+        this.subjectId = subjectId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class BatchDecisionRequest {
+    private String action; // "APPROVE" or "REJECT"
+    private List<Long> ids;
+
+    public BatchDecisionRequest() {}
+
+    public BatchDecisionRequest(String action, List<Long> ids) {
+        this.action = action;
+        this.ids = ids;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
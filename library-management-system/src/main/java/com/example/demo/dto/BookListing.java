@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Book;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+// A book in a catalog listing, serialized as the book's own fields plus "rating" when the
+// listing asked for ratings (withRatings=true)
+public class BookListing {
+    @JsonUnwrapped
+    private Book book;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RatingSummary rating;
+
+    public BookListing() {}
+
+    public BookListing(Book book, RatingSummary rating) {
+        this.book = book;
+        this.rating = rating;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public RatingSummary getRating() {
+        return rating;
+    }
+
+    public void setRating(RatingSummary rating) {
+        this.rating = rating;
+    }
+}
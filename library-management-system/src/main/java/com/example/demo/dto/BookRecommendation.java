@@ -0,0 +1,59 @@
+package com.example.demo.dto;
+
+public class BookRecommendation {
+    private Long bookId;
+    private String title;
+    private String author;
+    private double score; // cosine similarity of the two books' borrowers, 0-1
+    private int coBorrowers; // students who borrowed both books
+
+    public BookRecommendation() {}
+
+    public BookRecommendation(Long bookId, String title, String author, double score, int coBorrowers) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.score = score;
+        this.coBorrowers = coBorrowers;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public int getCoBorrowers() {
+        return coBorrowers;
+    }
+
+    public void setCoBorrowers(int coBorrowers) {
+        this.coBorrowers = coBorrowers;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+// Acknowledges an admitted book request. The request is stored in the background, so it has no
+// id yet; it shows up as PENDING in the student's issues once written (normally within a second).
+public class BookRequestReceipt {
+    private Long bookId;
+    private Long studentId;
+    private String status;
+    private LocalDate requestedDate;
+
+    public BookRequestReceipt() {}
+
+    public BookRequestReceipt(Long bookId, Long studentId, LocalDate requestedDate) {
+        this.bookId = bookId;
+        this.studentId = studentId;
+        this.status = "PENDING";
+        this.requestedDate = requestedDate;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDate getRequestedDate() {
+        return requestedDate;
+    }
+
+    public void setRequestedDate(LocalDate requestedDate) {
+        this.requestedDate = requestedDate;
+    }
+}
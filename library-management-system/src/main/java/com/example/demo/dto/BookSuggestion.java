@@ -0,0 +1,49 @@
+package com.example.demo.dto;
+
+public class BookSuggestion {
+    private String text;
+    private String type; // "TITLE" or "AUTHOR"
+    private Long bookId; // only set for title suggestions
+    private long weight;
+
+    public BookSuggestion() {}
+
+    public BookSuggestion(String text, String type, Long bookId, long weight) {
+        this.text = text;
+        this.type = type;
+        this.bookId = bookId;
+        this.weight = weight;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public void setWeight(long weight) {
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Issue;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class CirculationResult {
+    private Long issueId;
+    private boolean success;
+    private String message;
+    private Issue issue;
+
+    public CirculationResult() {}
+
+    public CirculationResult(Long issueId, boolean success, String message, Issue issue) {
+        this.issueId = issueId;
+        this.success = success;
+        this.message = message;
+        this.issue = issue;
+    }
+
+    public static CirculationResult ok(Issue issue, String message) {
+        return new CirculationResult(issue.getId(), true, message, issue);
+    }
+
+    public static CirculationResult failed(Long issueId, String message) {
+        return new CirculationResult(issueId, false, message, null);
+    }
+
+    public Long getIssueId() {
+        return issueId;
+    }
+
+    public void setIssueId(Long issueId) {
+        this.issueId = issueId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    // Carried back to the controller for side effects; per-item batch results only expose id, success and message
+    @JsonIgnore
+    public Issue getIssue() {
+        return issue;
+    }
+
+    public void setIssue(Issue issue) {
+        this.issue = issue;
+    }
+}
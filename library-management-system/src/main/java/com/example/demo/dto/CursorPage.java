@@ -0,0 +1,53 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+// Page-token envelope for keyset (cursor) paginated endpoints.
+// Pass nextPageToken back as pageToken to fetch the following page.
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextPageToken;
+    private boolean hasMore;
+    private int size;
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> items, String nextPageToken, boolean hasMore) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+        this.hasMore = hasMore;
+        this.size = items.size();
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
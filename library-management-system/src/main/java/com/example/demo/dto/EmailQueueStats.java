@@ -0,0 +1,97 @@
+package com.example.demo.dto;
+
+// Outgoing mail queue depth (from the table) and send counters/latencies (since startup)
+public class EmailQueueStats {
+    private long pending;
+    private int sending;
+    private long dead;
+    private long sent;
+    private long failedAttempts;
+    private long deadLettered;
+    private long avgSendMillis;
+    private long maxSendMillis;
+    private long avgQueueDelayMillis;
+    private long maxQueueDelayMillis;
+
+    public EmailQueueStats() {}
+
+    public long getPending() {
+        return pending;
+    }
+
+    public void setPending(long pending) {
+        this.pending = pending;
+    }
+
+    public int getSending() {
+        return sending;
+    }
+
+    public void setSending(int sending) {
+        this.sending = sending;
+    }
+
+    public long getDead() {
+        return dead;
+    }
+
+    public void setDead(long dead) {
+        this.dead = dead;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    public void setFailedAttempts(long failedAttempts) {
+        this.failedAttempts = failedAttempts;
+    }
+
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public void setDeadLettered(long deadLettered) {
+        this.deadLettered = deadLettered;
+    }
+
+    public long getAvgSendMillis() {
+        return avgSendMillis;
+    }
+
+    public void setAvgSendMillis(long avgSendMillis) {
+        this.avgSendMillis = avgSendMillis;
+    }
+
+    public long getMaxSendMillis() {
+        return maxSendMillis;
+    }
+
+    public void setMaxSendMillis(long maxSendMillis) {
+        this.maxSendMillis = maxSendMillis;
+    }
+
+    public long getAvgQueueDelayMillis() {
+        return avgQueueDelayMillis;
+    }
+
+    public void setAvgQueueDelayMillis(long avgQueueDelayMillis) {
+        this.avgQueueDelayMillis = avgQueueDelayMillis;
+    }
+
+    public long getMaxQueueDelayMillis() {
+        return maxQueueDelayMillis;
+    }
+
+    public void setMaxQueueDelayMillis(long maxQueueDelayMillis) {
+        this.maxQueueDelayMillis = maxQueueDelayMillis;
+    }
+}
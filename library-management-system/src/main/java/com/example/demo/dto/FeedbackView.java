@@ -0,0 +1,103 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Feedback;
+
+import java.time.LocalDateTime;
+
+// One review as served by the feedback API: the reviewer's id and username and the book's id and
+// title instead of the full User (with its password hash) and Book graphs. Never serialise
+// Feedback itself.
+public class FeedbackView {
+    private Long id;
+    private Long bookId;
+    private String bookTitle;
+    private Long userId;
+    private String username;
+    private int rating;
+    private String comment;
+    private LocalDateTime createdAt;
+
+    public FeedbackView() {}
+
+    public FeedbackView(Long id, Long bookId, String bookTitle, Long userId, String username,
+                        int rating, String comment, LocalDateTime createdAt) {
+        this.id = id;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.userId = userId;
+        this.username = username;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+    }
+
+    public static FeedbackView from(Feedback feedback) {
+        return new FeedbackView(feedback.getId(), feedback.getBook().getId(), feedback.getBook().getTitle(),
+            feedback.getUser().getId(), feedback.getUser().getUsername(), feedback.getRating(),
+            feedback.getComment(), feedback.getCreatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public void setRating(int rating) {
+        this.rating = rating;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Issue;
+
+import java.time.LocalDate;
+
+// Flat row for the admin circulation views: just the columns the tables show, without the
+// nested Book/User graphs (and the student's password hash) that serialising Issue drags along.
+public class IssueView {
+    private Long id;
+    private String status;
+    private LocalDate requestedDate;
+    private LocalDate issueDate;
+    private LocalDate returnDate;
+    private boolean returned;
+    private int fine;
+    private Long bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private Long studentId;
+    private String studentUsername;
+    private String studentRollNumber;
+
+    public IssueView() {}
+
+    public static IssueView from(Issue issue) {
+        IssueView view = new IssueView();
+        view.id = issue.getId();
+        view.status = issue.getStatus();
+        view.requestedDate = issue.getRequestedDate();
+        view.issueDate = issue.getIssueDate();
+        view.returnDate = issue.getReturnDate();
+        view.returned = issue.isReturned();
+        view.fine = issue.getFine();
+        if (issue.getBook() != null) {
+            view.bookId = issue.getBook().getId();
+            view.bookTitle = issue.getBook().getTitle();
+            view.bookAuthor = issue.getBook().getAuthor();
+        }
+        if (issue.getStudent() != null) {
+            view.studentId = issue.getStudent().getId();
+            view.studentUsername = issue.getStudent().getUsername();
+            view.studentRollNumber = issue.getStudent().getRollNumber();
+        }
+        return view;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDate getRequestedDate() {
+        return requestedDate;
+    }
+
+    public void setRequestedDate(LocalDate requestedDate) {
+        this.requestedDate = requestedDate;
+    }
+
+    public LocalDate getIssueDate() {
+        return issueDate;
+    }
+
+    public void setIssueDate(LocalDate issueDate) {
+        this.issueDate = issueDate;
+    }
+
+    public LocalDate getReturnDate() {
+        return returnDate;
+    }
+
+    public void setReturnDate(LocalDate returnDate) {
+        this.returnDate = returnDate;
+    }
+
+    public boolean isReturned() {
+        return returned;
+    }
+
+    public void setReturned(boolean returned) {
+        this.returned = returned;
+    }
+
+    public int getFine() {
+        return fine;
+    }
+
+    public void setFine(int fine) {
+        this.fine = fine;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public String getBookAuthor() {
+        return bookAuthor;
+    }
+
+    public void setBookAuthor(String bookAuthor) {
+        this.bookAuthor = bookAuthor;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getStudentUsername() {
+        return studentUsername;
+    }
+
+    public void setStudentUsername(String studentUsername) {
+        this.studentUsername = studentUsername;
+    }
+
+    public String getStudentRollNumber() {
+        return studentRollNumber;
+    }
+
+    public void setStudentRollNumber(String studentRollNumber) {
+        this.studentRollNumber = studentRollNumber;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.BookRating;
+
+import java.util.List;
+
+// Rating of one book: number of ratings, their average (0 when unrated) and how many of each star
+// value, histogram[0] being 1 star
+public class RatingSummary {
+    private Long bookId;
+    private long count;
+    private double average;
+    private List<Long> histogram;
+
+    public RatingSummary() {}
+
+    public static RatingSummary from(BookRating rating) {
+        RatingSummary summary = new RatingSummary();
+        summary.setBookId(rating.getBookId());
+        summary.setCount(rating.getRatingCount());
+        if (rating.getRatingCount() > 0) {
+            summary.setAverage(Math.round(rating.getRatingSum() * 100.0 / rating.getRatingCount()) / 100.0);
+        }
+        summary.setHistogram(List.of(rating.getStars1(), rating.getStars2(), rating.getStars3(),
+            rating.getStars4(), rating.getStars5()));
+        return summary;
+    }
+
+    public static RatingSummary unrated(Long bookId) {
+        RatingSummary summary = new RatingSummary();
+        summary.setBookId(bookId);
+        summary.setHistogram(List.of(0L, 0L, 0L, 0L, 0L));
+        return summary;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public void setAverage(double average) {
+        this.average = average;
+    }
+
+    public List<Long> getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(List<Long> histogram) {
+        this.histogram = histogram;
+    }
+}
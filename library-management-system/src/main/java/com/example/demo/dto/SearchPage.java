@@ -0,0 +1,63 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+// Offset page of ranked search results. total counts every match, so clients can render page links;
+// pass page + 1 to fetch the following page while hasMore is true.
+public class SearchPage<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private int total;
+    private boolean hasMore;
+
+    public SearchPage() {}
+
+    public SearchPage(List<T> items, int page, int total, boolean hasMore) {
+        this.items = items;
+        this.page = page;
+        this.size = items.size();
+        this.total = total;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+// Request details plus the user id carried in the token, so handlers can act for the caller
+// without looking the user up by name
+public class JwtAuthenticationDetails extends WebAuthenticationDetails {
+
+    private final Long userId;
+
+    public JwtAuthenticationDetails(HttpServletRequest request, Long userId) {
+        super(request);
+        this.userId = userId;
+    }
+
+    // Null for tokens issued without a userId claim
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -9,16 +9,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
 
+// Reads the token from the Authorization header. The live feed also accepts one as the
+// access_token query parameter, since EventSource cannot set headers; that one must be a
+// live-feed token (see JwtUtil.generateLiveFeedToken), which is refused everywhere else.
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    public static final String LIVE_FEED_PATH = "/api/activity-logs/stream";
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -30,9 +34,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String username = null;
         String jwtToken = null;
+        boolean liveFeed = false;
 
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
             jwtToken = requestTokenHeader.substring(7);
+        } else if (request.getParameter("access_token") != null
+                && (request.getContextPath() + LIVE_FEED_PATH).equals(request.getRequestURI())) {
+            jwtToken = request.getParameter("access_token");
+            liveFeed = true;
+        }
+        if (jwtToken != null) {
             try {
                 username = jwtUtil.extractUsername(jwtToken);
             } catch (Exception e) {
@@ -41,7 +52,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwtToken, username)) {
+            boolean liveFeedToken = JwtUtil.LIVE_FEED_SCOPE.equals(jwtUtil.extractScope(jwtToken));
+            if (liveFeedToken == liveFeed && jwtUtil.validateToken(jwtToken, username)) {
                 String role = jwtUtil.extractRole(jwtToken);
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
@@ -51,7 +63,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                 Collections.singleton(new SimpleGrantedAuthority("ROLE_" + role))
                         );
                 usernamePasswordAuthenticationToken
-                        .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        .setDetails(new JwtAuthenticationDetails(request, jwtUtil.extractUserId(jwtToken)));
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
             }
         }
@@ -1,10 +1,18 @@
 package com.example.demo.model;
 
+import com.example.demo.util.EventPayload;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "activity_logs")
+@Table(name = "activity_logs", indexes = {
+    // Newest-first keyset scans, unfiltered and per filter column
+    @Index(name = "idx_activity_created_id", columnList = "created_at, id"),
+    @Index(name = "idx_activity_action_created_id", columnList = "action_type, created_at, id"),
+    @Index(name = "idx_activity_user_created_id", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_activity_book_created_id", columnList = "book_id, created_at, id")
+})
 public class ActivityLog {
 
     @Id
@@ -14,9 +22,19 @@ public class ActivityLog {
     @Column(name = "action_type", nullable = false)
     private String actionType; // "BOOK_ISSUED", "BOOK_RETURNED", "BOOK_ADDED", "BOOK_DELETED", "USER_APPROVED", "USER_REJECTED", etc.
 
+    // Only set on entries written before descriptions were rendered on read; see ActivityLogService.describe
     @Column(name = "description", length = 1000)
     private String description;
 
+    // The user acted upon (USER_APPROVED etc.); user is the actor
+    @Column(name = "subject_id")
+    private Long subjectId;
+
+    // Names the entry cannot join to later, see EventPayload
+    @JsonIgnore
+    @Column(name = "payload", length = EventPayload.MAX_LENGTH)
+    private String payload;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
@@ -30,7 +48,9 @@ public class ActivityLog {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 
     public ActivityLog() {}
@@ -48,6 +68,14 @@ public class ActivityLog {
         this.book = book;
     }
 
+    public ActivityLog(String actionType, User user, Book book, Long subjectId, String payload) {
+        this.actionType = actionType;
+        this.user = user;
+        this.book = book;
+        this.subjectId = subjectId;
+        this.payload = payload;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -73,6 +101,22 @@ public class ActivityLog {
         this.description = description;
     }
 
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public void setSubjectId(Long subjectId) {
+        this.subjectId = subjectId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
     public User getUser() {
         return user;
     }
@@ -1,15 +1,27 @@
 package com.example.demo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
+@Table(indexes = {
+    // Composite (sort key, id) indexes back the keyset-paginated catalog
+    @Index(name = "idx_book_title_id", columnList = "title, id"),
+    @Index(name = "idx_book_author_id", columnList = "author, id")
+})
+// Only dirty columns are written, so saving title/author edits never overwrites
+// the inventory counters that circulation updates atomically
+@DynamicUpdate
 public class Book {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Never null (empty instead): they are keyset sort keys, and no key sorts after NULL
+    @Column(nullable = false)
     private String title;
+    @Column(nullable = false)
     private String author;
     private String genre;
     private int quantity;
@@ -26,6 +38,17 @@ public class Book {
         this.available = 0;
     }
 
+    @PrePersist
+    @PreUpdate
+    void fillSortKeys() {
+        if (title == null) {
+            title = "";
+        }
+        if (author == null) {
+            author = "";
+        }
+    }
+
     // getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "contacts")
+@Table(name = "contacts", indexes = {
+    // Newest-first keyset scans of the admin inbox, all messages and by read state
+    @Index(name = "idx_contact_created_id", columnList = "created_at, id"),
+    @Index(name = "idx_contact_read_created_id", columnList = "is_read, created_at, id")
+})
 public class Contact {
 
     @Id
@@ -25,6 +29,10 @@ public class Contact {
 
     private LocalDateTime createdAt;
 
+    // READ is a reserved word in MySQL
+    @Column(name = "is_read", nullable = false)
+    private boolean read = false;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -86,5 +94,12 @@ public class Contact {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
-}
 
+    public boolean isRead() {
+        return read;
+    }
+
+    public void setRead(boolean read) {
+        this.read = read;
+    }
+}
@@ -4,6 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+    // Newest-first keyset scans, all reviews and per book / per reviewer
+    @Index(name = "idx_feedback_created_id", columnList = "created_at, id"),
+    @Index(name = "idx_feedback_book_created_id", columnList = "book_id, created_at, id"),
+    @Index(name = "idx_feedback_user_created_id", columnList = "user_id, created_at, id")
+})
 public class Feedback {
 
     @Id
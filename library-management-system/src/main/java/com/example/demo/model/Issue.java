@@ -1,10 +1,21 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+    // Seek indexes for the paginated admin views (pending queue, active loans by due date, returned)
+    @Index(name = "idx_issue_status_requested", columnList = "status, requested_date, id"),
+    @Index(name = "idx_issue_returned_due", columnList = "returned, return_date, id")
+}, uniqueConstraints = {
+    // At most one pending or unreturned issue per student and book. active_hold is TRUE while the
+    // issue holds a copy and NULL otherwise, and NULLs never collide in a unique index, so past
+    // and rejected issues are unrestricted. The index also serves the (student, book) existence checks.
+    @UniqueConstraint(name = "uk_issue_student_book_active", columnNames = {"student_id", "book_id", "active_hold"})
+})
 public class Issue {
 
     @Id
@@ -31,6 +42,32 @@ public class Issue {
     
     private LocalDate requestedDate; // Date when student requested the book
 
+    // Derived from returned/status; bulk UPDATEs in IssueRepository keep it in step as well
+    @JsonIgnore
+    @Column(name = "active_hold")
+    private Boolean activeHold;
+
+    // Set by OverdueNotificationJob in the same transaction that queues the email, so a restart never sends it twice
+    @JsonIgnore
+    @Column(name = "reminder_sent_on")
+    private LocalDate reminderSentOn;
+
+    @JsonIgnore
+    @Column(name = "overdue_alert_sent_on")
+    private LocalDate overdueAlertSentOn;
+
+    @PrePersist
+    @PreUpdate
+    protected void syncActiveHold() {
+        activeHold = !returned && !"REJECTED".equals(status) ? Boolean.TRUE : null;
+    }
+
+    public LocalDate getReminderSentOn() { return reminderSentOn; }
+    public void setReminderSentOn(LocalDate reminderSentOn) { this.reminderSentOn = reminderSentOn; }
+
+    public LocalDate getOverdueAlertSentOn() { return overdueAlertSentOn; }
+    public void setOverdueAlertSentOn(LocalDate overdueAlertSentOn) { this.overdueAlertSentOn = overdueAlertSentOn; }
+
     public boolean isReturnArchived() { return returnArchived; }
     public void setReturnArchived(boolean returnArchived) { this.returnArchived = returnArchived; }
 
@@ -59,6 +96,8 @@ public class Issue {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public Boolean getActiveHold() { return activeHold; }
+
     public LocalDate getRequestedDate() { return requestedDate; }
     public void setRequestedDate(LocalDate requestedDate) { this.requestedDate = requestedDate; }
 }
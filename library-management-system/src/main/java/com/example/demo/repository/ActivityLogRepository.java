@@ -1,19 +1,41 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.ActivityLog;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long> {
-    List<ActivityLog> findByActionType(String actionType);
-    List<ActivityLog> findByUser_Id(Long userId);
-    List<ActivityLog> findByBook_Id(Long bookId);
-    List<ActivityLog> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
-    
-    @Query("SELECT al FROM ActivityLog al ORDER BY al.createdAt DESC")
-    List<ActivityLog> findAllOrderByCreatedAtDesc();
-}
+// Reads go through ActivityLogService.findPage (keyset pages); there are deliberately no unbounded finders
+public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long>, JpaSpecificationExecutor<ActivityLog> {
+
+    // Oldest entries before the retention cutoff, flat, for the archive job (served by idx_activity_created_id)
+    @Query("SELECT al.id AS id, al.actionType AS actionType, al.description AS description, " +
+           "al.user.id AS userId, al.book.id AS bookId, al.subjectId AS subjectId, al.payload AS payload, " +
+           "al.createdAt AS createdAt " +
+           "FROM ActivityLog al WHERE al.createdAt < :cutoff ORDER BY al.createdAt, al.id")
+    List<ArchivableEntry> findArchivable(@Param("cutoff") LocalDateTime cutoff, Limit limit);
 
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ActivityLog al WHERE al.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface ArchivableEntry {
+        Long getId();
+        String getActionType();
+        String getDescription();
+        Long getUserId();
+        Long getBookId();
+        Long getSubjectId();
+        String getPayload();
+        LocalDateTime getCreatedAt();
+    }
+}
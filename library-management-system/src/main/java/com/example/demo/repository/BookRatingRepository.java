@@ -0,0 +1,45 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.BookRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface BookRatingRepository extends JpaRepository<BookRating, Long> {
+
+    // Applies one rating change in place: added and removed are star values (1-5), 0 for none.
+    // A single UPDATE, so concurrent changes to the same book never lose each other.
+    @Modifying
+    @Query("UPDATE BookRating r SET " +
+           "r.ratingCount = r.ratingCount + (CASE WHEN :added > 0 THEN 1 ELSE 0 END) - (CASE WHEN :removed > 0 THEN 1 ELSE 0 END), " +
+           "r.ratingSum = r.ratingSum + :added - :removed, " +
+           "r.stars1 = r.stars1 + (CASE WHEN :added = 1 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 1 THEN 1 ELSE 0 END), " +
+           "r.stars2 = r.stars2 + (CASE WHEN :added = 2 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 2 THEN 1 ELSE 0 END), " +
+           "r.stars3 = r.stars3 + (CASE WHEN :added = 3 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 3 THEN 1 ELSE 0 END), " +
+           "r.stars4 = r.stars4 + (CASE WHEN :added = 4 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 4 THEN 1 ELSE 0 END), " +
+           "r.stars5 = r.stars5 + (CASE WHEN :added = 5 THEN 1 ELSE 0 END) - (CASE WHEN :removed = 5 THEN 1 ELSE 0 END) " +
+           "WHERE r.bookId = :bookId")
+    int applyChange(@Param("bookId") Long bookId, @Param("added") int added, @Param("removed") int removed);
+
+    // An empty row, unless the book already has one (concurrent callers may race: one insert fails)
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO BookRating (bookId, ratingCount, ratingSum, stars1, stars2, stars3, stars4, stars5) " +
+           "SELECT b.id, 0, 0, 0, 0, 0, 0, 0 FROM Book b " +
+           "WHERE b.id = :bookId AND NOT EXISTS (SELECT 1 FROM BookRating r WHERE r.bookId = b.id)")
+    int insertEmpty(@Param("bookId") Long bookId);
+
+    // Totals recomputed from the feedback table, for books that have feedback but no row here yet
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO BookRating (bookId, ratingCount, ratingSum, stars1, stars2, stars3, stars4, stars5) " +
+           "SELECT f.book.id, COUNT(f), SUM(f.rating), " +
+           "SUM(CASE WHEN f.rating = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN f.rating = 2 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN f.rating = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN f.rating = 4 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN f.rating = 5 THEN 1 ELSE 0 END) " +
+           "FROM Feedback f WHERE NOT EXISTS (SELECT 1 FROM BookRating r WHERE r.bookId = f.book.id) " +
+           "GROUP BY f.book.id")
+    int insertMissing();
+}
@@ -1,6 +1,77 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {}
+import java.util.Collection;
+import java.util.List;
+
+public interface BookRepository extends JpaRepository<Book, Long> {
+
+    // Keyset pagination: seeks past the last (sort key, id) instead of using OFFSET,
+    // so deep pages cost the same as the first one
+    @EntityGraph(attributePaths = "category")
+    Window<Book> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // Text-only projection used to build the in-memory search indexes in chunks
+    @Query("SELECT b.id AS id, b.title AS title, b.author AS author, b.genre AS genre " +
+           "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookText> findTextAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Rows stored before title and author became NOT NULL; ddl-auto=update won't change the columns
+    @Transactional
+    @Modifying
+    @Query("UPDATE Book b SET b.title = COALESCE(b.title, ''), b.author = COALESCE(b.author, '') " +
+           "WHERE b.title IS NULL OR b.author IS NULL")
+    int fillMissingSortKeys();
+
+    @Query("SELECT b.available FROM Book b WHERE b.id = :id")
+    Integer findAvailableById(@Param("id") Long id);
+
+    // Row locks for batch circulation, taken in id order so concurrent batches can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> lockAllById(@Param("ids") Collection<Long> ids);
+
+    // Inventory changes are single conditional UPDATEs so concurrent circulation can never
+    // oversell a copy or let available drift; callers check the returned row count
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.available = b.available - 1 WHERE b.id = :id AND b.available > 0")
+    int decrementAvailable(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.available = b.available + 1 WHERE b.id = :id AND b.available < b.quantity")
+    int incrementAvailable(@Param("id") Long id);
+
+    // Several returns of the same book folded into one UPDATE, capped at quantity like incrementAvailable
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.available = CASE WHEN b.available + :count > b.quantity THEN b.quantity " +
+           "ELSE b.available + :count END WHERE b.id = :id")
+    int incrementAvailableBy(@Param("id") Long id, @Param("count") int count);
+
+    // available is assigned first so it is computed from the old quantity
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET " +
+           "b.available = CASE WHEN b.available + (:quantity - b.quantity) < 0 THEN 0 " +
+           "ELSE b.available + (:quantity - b.quantity) END, " +
+           "b.quantity = :quantity WHERE b.id = :id")
+    int changeQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    interface BookText {
+        Long getId();
+        String getTitle();
+        String getAuthor();
+        String getGenre();
+    }
+}
@@ -2,16 +2,21 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Contact;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-
+// Reads go through ContactService.findPage (keyset pages); there are deliberately no unbounded finders
 @Repository
-public interface ContactRepository extends JpaRepository<Contact, Long> {
-    List<Contact> findAllByOrderByCreatedAtDesc();
-    
-    @Query("SELECT c FROM Contact c ORDER BY c.createdAt DESC")
-    List<Contact> findAllOrderedByCreatedAtDesc();
-}
+public interface ContactRepository extends JpaRepository<Contact, Long>, JpaSpecificationExecutor<Contact> {
 
+    long countByRead(boolean read);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Contact c SET c.read = :read WHERE c.id = :id")
+    int markRead(@Param("id") Long id, @Param("read") boolean read);
+}
@@ -1,19 +1,25 @@
 package com.example.demo.repository;
 
-import com.example.demo.model.Book;
+import com.example.demo.dto.FeedbackView;
 import com.example.demo.model.Feedback;
-import com.example.demo.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
-
-public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
-    List<Feedback> findByBook(Book book);
-    List<Feedback> findByUser(User user);
-    List<Feedback> findByBookOrderByCreatedAtDesc(Book book);
-}
-
-
+import java.util.Optional;
 
+// Reads go through FeedbackService.findPage (keyset pages, with findBy); there are deliberately no
+// unbounded finders.
+public interface FeedbackRepository extends JpaRepository<Feedback, Long>, JpaSpecificationExecutor<Feedback> {
 
+    @Query("SELECT new com.example.demo.dto.FeedbackView(f.id, b.id, b.title, u.id, u.username, " +
+           "f.rating, f.comment, f.createdAt) FROM Feedback f JOIN f.book b JOIN f.user u WHERE f.id = :id")
+    Optional<FeedbackView> findViewById(@Param("id") Long id);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Feedback f WHERE f.id = :id")
+    Optional<Feedback> lockById(@Param("id") Long id);
+}
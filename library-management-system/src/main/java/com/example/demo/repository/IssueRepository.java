@@ -3,10 +3,21 @@ package com.example.demo.repository;
 import com.example.demo.model.Book;
 import com.example.demo.model.Issue;
 import com.example.demo.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-public interface IssueRepository extends JpaRepository<Issue, Long> {
+public interface IssueRepository extends JpaRepository<Issue, Long>, JpaSpecificationExecutor<Issue> {
     List<Issue> findByStudent(User student);
 
     // ✅ New: get only returned issues
@@ -20,4 +31,105 @@ public interface IssueRepository extends JpaRepository<Issue, Long> {
     
     // Find pending requests by student
     List<Issue> findByStudentAndStatus(User student, String status);
+
+    // Duplicate checks for one (student, book) pair, answered from uk_issue_student_book_active
+    boolean existsByStudent_IdAndBook_IdAndActiveHoldTrue(Long studentId, Long bookId);
+
+    boolean existsByStudent_IdAndBook_IdAndStatus(Long studentId, Long bookId, String status);
+
+    // Book and student of each issue, without loading the entities (used to lock books first)
+    @Query("SELECT i.id AS id, i.book.id AS bookId, i.student.id AS studentId FROM Issue i WHERE i.id IN :ids")
+    List<IssueRef> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Issue i WHERE i.id IN :ids ORDER BY i.id")
+    List<Issue> lockAllById(@Param("ids") Collection<Long> ids);
+
+    // Number of times each book has actually been issued (used as popularity weight)
+    @Query("SELECT i.book.id AS bookId, COUNT(i) AS issueCount FROM Issue i " +
+           "WHERE i.status IS NULL OR i.status = 'APPROVED' GROUP BY i.book.id")
+    List<BookIssueCount> countIssuesByBook();
+
+    // Status transitions are conditional so only one of several concurrent callers wins
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Issue i SET i.status = 'APPROVED', i.issueDate = :issueDate, i.returnDate = :returnDate " +
+           "WHERE i.id = :id AND i.status = 'PENDING'")
+    int markApproved(@Param("id") Long id, @Param("issueDate") LocalDate issueDate, @Param("returnDate") LocalDate returnDate);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Issue i SET i.status = :toStatus, " +
+           "i.activeHold = CASE WHEN :toStatus = 'REJECTED' THEN NULL ELSE i.activeHold END " +
+           "WHERE i.id = :id AND i.status = :fromStatus")
+    int transitionStatus(@Param("id") Long id, @Param("fromStatus") String fromStatus, @Param("toStatus") String toStatus);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Issue i SET i.returned = true, i.fine = :fine, i.activeHold = NULL " +
+           "WHERE i.id = :id AND i.returned = false AND (i.status IS NULL OR i.status = 'APPROVED')")
+    int markReturned(@Param("id") Long id, @Param("fine") int fine);
+
+    // Marks issues stored before active_hold existed; fails if legacy data already holds duplicates
+    @Transactional
+    @Modifying
+    @Query("UPDATE Issue i SET i.activeHold = true " +
+           "WHERE i.activeHold IS NULL AND i.returned = false AND (i.status IS NULL OR i.status <> 'REJECTED')")
+    int backfillActiveHolds();
+
+    // Requests and loans still holding a copy: pending or issued and not yet returned
+    @Query("SELECT i.book.id AS bookId, i.student.id AS studentId, i.status AS status FROM Issue i " +
+           "WHERE i.returned = false AND (i.status IS NULL OR i.status <> 'REJECTED')")
+    List<ActiveHold> findActiveHolds();
+
+    // Due-date scans, all served by idx_issue_returned_due (returned, return_date, id) and read in
+    // keyset chunks ordered by (returnDate, id); pending requests have no return date and never match
+
+    // Loans due in [from, to] whose reminder hasn't been sent
+    @Query("SELECT i FROM Issue i JOIN FETCH i.book JOIN FETCH i.student " +
+           "WHERE i.returned = false AND i.returnDate BETWEEN :from AND :to AND i.reminderSentOn IS NULL " +
+           "AND (i.returnDate > :afterDate OR (i.returnDate = :afterDate AND i.id > :afterId)) " +
+           "ORDER BY i.returnDate, i.id")
+    List<Issue> findReminderDue(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Limit limit);
+
+    // Loans due in [from, to] with no overdue alert sent on or after alertedBefore
+    @Query("SELECT i FROM Issue i JOIN FETCH i.book JOIN FETCH i.student " +
+           "WHERE i.returned = false AND i.returnDate BETWEEN :from AND :to " +
+           "AND (i.overdueAlertSentOn IS NULL OR i.overdueAlertSentOn < :alertedBefore) " +
+           "AND (i.returnDate > :afterDate OR (i.returnDate = :afterDate AND i.id > :afterId)) " +
+           "ORDER BY i.returnDate, i.id")
+    List<Issue> findOverdueAlertDue(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                    @Param("alertedBefore") LocalDate alertedBefore,
+                                    @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Limit limit);
+
+    // Unreturned loans due before the given day, oldest first
+    @Query("SELECT i FROM Issue i JOIN FETCH i.book JOIN FETCH i.student " +
+           "WHERE i.returned = false AND i.returnDate < :today ORDER BY i.returnDate, i.id")
+    List<Issue> findOverdue(@Param("today") LocalDate today);
+
+    @Query("SELECT COUNT(i) FROM Issue i WHERE i.returned = false AND i.returnDate < :today")
+    long countOverdue(@Param("today") LocalDate today);
+
+    @Modifying
+    @Query("UPDATE Issue i SET i.reminderSentOn = :day WHERE i.id IN :ids")
+    int markReminderSent(@Param("ids") Collection<Long> ids, @Param("day") LocalDate day);
+
+    @Modifying
+    @Query("UPDATE Issue i SET i.overdueAlertSentOn = :day WHERE i.id IN :ids")
+    int markOverdueAlertSent(@Param("ids") Collection<Long> ids, @Param("day") LocalDate day);
+
+    interface IssueRef {
+        Long getId();
+        Long getBookId();
+        Long getStudentId();
+    }
+
+    interface ActiveHold {
+        Long getBookId();
+        Long getStudentId();
+        String getStatus();
+    }
+
+    interface BookIssueCount {
+        Long getBookId();
+        long getIssueCount();
+    }
 }
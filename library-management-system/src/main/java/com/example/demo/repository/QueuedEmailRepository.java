@@ -0,0 +1,55 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.QueuedEmail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Called from EmailQueue's own threads, outside any transaction, hence @Transactional on the updates
+public interface QueuedEmailRepository extends JpaRepository<QueuedEmail, Long> {
+
+    // Served by idx_email_queue_status_next
+    @Query("SELECT e FROM QueuedEmail e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now " +
+           "ORDER BY e.nextAttemptAt, e.id")
+    List<QueuedEmail> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    long countByStatus(String status);
+
+    List<QueuedEmail> findByStatusOrderByIdDesc(String status, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedEmail e SET e.status = 'SENDING' WHERE e.id IN :ids AND e.status = 'PENDING'")
+    int markSending(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedEmail e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lastError = :lastError WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("status") String status, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM QueuedEmail e WHERE e.id IN :ids")
+    int deleteSent(@Param("ids") Collection<Long> ids);
+
+    // Messages a previous run handed to a sender but never finished; they go out again
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedEmail e SET e.status = 'PENDING' WHERE e.status = 'SENDING'")
+    int releaseInFlight();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedEmail e SET e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now " +
+           "WHERE e.status = 'DEAD'")
+    int requeueDead(@Param("now") LocalDateTime now);
+}
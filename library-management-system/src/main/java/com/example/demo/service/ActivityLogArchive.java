@@ -0,0 +1,353 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold storage for activity entries: one gzip-compressed NDJSON file per month
+// (activity-2025-01.ndjson.gz). Each archive run appends its rows as a new gzip member, which
+// standard gzip readers (and GZIPInputStream) read back as one stream. A small index per month
+// (activity-2025-01.idx) records each member's byte range and time range, so a page only
+// decompresses the members that can hold its rows. A checkpoint file holds the ids of the last
+// batch written, so a run interrupted between writing and deleting the hot rows doesn't archive
+// them twice. The member is synced and indexed before the checkpoint is written: a member whose
+// index line never made it is not read, and one indexed without its checkpoint is read twice,
+// which read() drops by id.
+@Service
+public class ActivityLogArchive {
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Newest first, as served by the activity log API
+    static final Comparator<Entry> NEWEST_FIRST = Comparator.comparing(Entry::createdAt)
+            .thenComparing(Entry::id).reversed();
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Value("${app.activity-log.archive-dir:archive/activity-logs}")
+    private String archiveDir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(archiveDir);
+        Files.createDirectories(root);
+    }
+
+    // Appends a batch (any months, any order) and records its ids as the checkpoint. Rows in the
+    // previous checkpoint were archived by a run that stopped before deleting them from the table,
+    // and are skipped.
+    public synchronized void append(List<Entry> entries) {
+        Set<Long> alreadyArchived = readCheckpoint();
+        List<Entry> sorted = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (!alreadyArchived.contains(entry.id())) {
+                sorted.add(entry);
+            }
+        }
+        if (sorted.isEmpty()) {
+            return;
+        }
+        sorted.sort(NEWEST_FIRST.reversed());
+        try {
+            int from = 0;
+            while (from < sorted.size()) {
+                YearMonth month = YearMonth.from(sorted.get(from).createdAt());
+                int to = from;
+                while (to < sorted.size() && YearMonth.from(sorted.get(to).createdAt()).equals(month)) {
+                    to++;
+                }
+                appendMonth(month, sorted.subList(from, to));
+                from = to;
+            }
+            List<Long> ids = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                ids.add(entry.id());
+            }
+            writeCheckpoint(ids);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write activity log archive", e);
+        }
+    }
+
+    // Up to limit entries that sort after (createdAt, id) in newest-first order and match the filter.
+    // Only members that can hold such rows are decompressed, newest first; pass nulls to start at the top.
+    public List<Entry> read(LocalDateTime beforeCreatedAt, Long beforeId,
+                            LocalDateTime start, LocalDateTime end, Predicate<Entry> filter, int limit) {
+        YearMonth newest = beforeCreatedAt != null ? YearMonth.from(beforeCreatedAt) : null;
+        if (end != null && (newest == null || YearMonth.from(end).isBefore(newest))) {
+            newest = YearMonth.from(end);
+        }
+        YearMonth oldest = start != null ? YearMonth.from(start) : null;
+
+        // Min-heap on newest-first order keeps the limit best candidates seen so far
+        PriorityQueue<Entry> best = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        Set<Long> seen = new HashSet<>();
+        for (YearMonth month : months()) {
+            if ((newest != null && month.isAfter(newest)) || (oldest != null && month.isBefore(oldest))) {
+                continue;
+            }
+            List<Member> members = new ArrayList<>();
+            for (Member member : index(month)) {
+                if (member.oldest() == null || !((beforeCreatedAt != null && member.oldest().isAfter(beforeCreatedAt))
+                        || (start != null && member.newest().isBefore(start))
+                        || (end != null && member.oldest().isAfter(end)))) {
+                    members.add(member);
+                }
+            }
+            members.sort(Comparator.comparing((Member m) -> newestIn(month, m)).reversed());
+
+            for (Member member : members) {
+                if (best.size() >= limit && best.peek().createdAt().isAfter(newestIn(month, member))) {
+                    // Every remaining member, in this month and older ones, is older still
+                    return newestFirst(best);
+                }
+                try (Stream<Entry> rows = lines(month, member)) {
+                    rows.filter(e -> beforeCreatedAt == null || e.createdAt().isBefore(beforeCreatedAt)
+                                    || (e.createdAt().isEqual(beforeCreatedAt) && e.id() < beforeId))
+                        .filter(e -> start == null || !e.createdAt().isBefore(start))
+                        .filter(e -> end == null || !e.createdAt().isAfter(end))
+                        .filter(filter)
+                        .filter(e -> seen.add(e.id()))
+                        .forEach(e -> {
+                            best.add(e);
+                            if (best.size() > limit) {
+                                best.poll();
+                            }
+                        });
+                }
+            }
+        }
+        return newestFirst(best);
+    }
+
+    private static List<Entry> newestFirst(PriorityQueue<Entry> best) {
+        List<Entry> page = new ArrayList<>(best);
+        page.sort(NEWEST_FIRST);
+        return page;
+    }
+
+    // Members written before the index existed have no time range; they are bounded by their month
+    private static LocalDateTime newestIn(YearMonth month, Member member) {
+        return member.newest() != null ? member.newest() : month.plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    // Archived months, newest first
+    private List<YearMonth> months() {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith("activity-") && name.endsWith(".ndjson.gz"))
+                    .map(name -> YearMonth.parse(name.substring("activity-".length(), name.length() - ".ndjson.gz".length())))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list activity log archive", e);
+        }
+    }
+
+    // Members of a month in write order; the whole file when it predates the index
+    private List<Member> index(YearMonth month) {
+        Path file = indexFile(month);
+        if (!Files.exists(file)) {
+            return List.of(new Member(0, -1, null, null));
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            List<Member> members = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                try {
+                    members.add(MAPPER.readValue(lines.get(i), Member.class));
+                } catch (IOException e) {
+                    // Only the last line can be half written, by a run that crashed before its checkpoint
+                    if (i < lines.size() - 1) {
+                        throw e;
+                    }
+                }
+            }
+            return members;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read activity log archive index " + month, e);
+        }
+    }
+
+    private Stream<Entry> lines(YearMonth month, Member member) {
+        try {
+            FileChannel channel = FileChannel.open(monthFile(month), StandardOpenOption.READ);
+            InputStream in = Channels.newInputStream(channel.position(member.offset()));
+            if (member.length() >= 0) {
+                in = new Region(in, member.length());
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(in, BUFFER_SIZE), StandardCharsets.UTF_8));
+            return reader.lines().onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }).map(line -> {
+                try {
+                    return MAPPER.readValue(line, Entry.class);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read activity log archive " + month, e);
+        }
+    }
+
+    private void appendMonth(YearMonth month, List<Entry> entries) throws IOException {
+        Path path = monthFile(month);
+        if (Files.exists(path) && !Files.exists(indexFile(month))) {
+            // Written before the index existed: keep it readable as one member
+            appendIndex(month, new Member(0, Files.size(path), null, null));
+        }
+        long offset;
+        long length;
+        try (FileOutputStream file = new FileOutputStream(path.toFile(), true)) {
+            // Starts after any member a crashed run wrote without indexing it
+            offset = file.getChannel().size();
+            GZIPOutputStream gzip = new GZIPOutputStream(file, BUFFER_SIZE);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            for (Entry entry : entries) {
+                writer.write(MAPPER.writeValueAsString(entry));
+                writer.write('\n');
+            }
+            writer.flush();
+            gzip.finish();
+            // On disk before the hot rows are deleted
+            file.getFD().sync();
+            length = file.getChannel().size() - offset;
+        }
+        appendIndex(month, new Member(offset, length, entries.get(0).createdAt(),
+                entries.get(entries.size() - 1).createdAt()));
+    }
+
+    private void appendIndex(YearMonth month, Member member) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile(month), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Drop a line a crash left half written, so it doesn't swallow this one
+            long end = channel.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            while (end > 0 && channel.read(last.clear(), end - 1) == 1 && last.get(0) != '\n') {
+                end--;
+            }
+            channel.truncate(end);
+            channel.write(ByteBuffer.wrap((MAPPER.writeValueAsString(member) + "\n").getBytes(StandardCharsets.UTF_8)), end);
+            channel.force(true);
+        }
+    }
+
+    private Path monthFile(YearMonth month) {
+        return root.resolve("activity-" + month + ".ndjson.gz");
+    }
+
+    private Path indexFile(YearMonth month) {
+        return root.resolve("activity-" + month + ".idx");
+    }
+
+    private Set<Long> readCheckpoint() {
+        Path file = root.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return Set.of();
+        }
+        try {
+            return new HashSet<>(MAPPER.readValue(file.toFile(), Checkpoint.class).ids());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read activity log archive checkpoint", e);
+        }
+    }
+
+    private void writeCheckpoint(List<Long> ids) throws IOException {
+        Path tmp = root.resolve(CHECKPOINT_FILE + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), new Checkpoint(ids));
+        Files.move(tmp, root.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public record Entry(Long id, String actionType, String description, Long userId, Long bookId,
+                        Long subjectId, String payload, LocalDateTime createdAt) {}
+
+    record Checkpoint(List<Long> ids) {}
+
+    // One archive run's gzip member: its byte range in the month file and the oldest and newest
+    // rows it holds. A length of -1 runs to the end of the file; times are null when unknown.
+    record Member(long offset, long length, LocalDateTime oldest, LocalDateTime newest) {}
+
+    // Reads at most length bytes, so GZIPInputStream stops at the end of one member
+    private static final class Region extends FilterInputStream {
+        private long remaining;
+
+        Region(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
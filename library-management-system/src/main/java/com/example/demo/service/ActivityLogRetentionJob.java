@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ActivityLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps activity_logs small: entries older than retention-days are moved, oldest first and in
+// batches, to the monthly archive files and then deleted from the table. Each batch is written
+// and synced to the archive before its rows are deleted.
+@Service
+public class ActivityLogRetentionJob {
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private ActivityLogArchive activityLogArchive;
+
+    @Value("${app.activity-log.retention-days:180}")
+    private int retentionDays;
+
+    @Value("${app.activity-log.archive-batch-size:5000}")
+    private int batchSize;
+
+    @Scheduled(cron = "${app.activity-log.retention-cron:0 30 3 * * *}")
+    public void runScheduled() {
+        int moved = archiveExpired();
+        if (moved > 0) {
+            System.out.println("Archived " + moved + " activity log entries older than " + retentionDays + " days");
+        }
+    }
+
+    public int archiveExpired() {
+        return archiveOlderThan(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    // Returns the number of rows moved out of the table
+    public synchronized int archiveOlderThan(LocalDateTime cutoff) {
+        int moved = 0;
+        while (true) {
+            List<ActivityLogRepository.ArchivableEntry> rows = activityLogRepository.findArchivable(cutoff, Limit.of(batchSize));
+            if (rows.isEmpty()) {
+                return moved;
+            }
+
+            List<ActivityLogArchive.Entry> toArchive = new ArrayList<>(rows.size());
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (ActivityLogRepository.ArchivableEntry row : rows) {
+                ids.add(row.getId());
+                toArchive.add(new ActivityLogArchive.Entry(row.getId(), row.getActionType(), row.getDescription(),
+                        row.getUserId(), row.getBookId(), row.getSubjectId(), row.getPayload(), row.getCreatedAt()));
+            }
+            activityLogArchive.append(toArchive);
+            activityLogRepository.deleteByIdIn(ids);
+            moved += ids.size();
+
+            if (rows.size() < batchSize) {
+                return moved;
+            }
+        }
+    }
+}
@@ -1,111 +1,293 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.ActivityFeedEntry;
+import com.example.demo.dto.CursorPage;
 import com.example.demo.model.ActivityLog;
 import com.example.demo.model.Book;
 import com.example.demo.model.User;
 import com.example.demo.repository.ActivityLogRepository;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.EventPayload;
+import com.example.demo.util.PageTokens;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class ActivityLogService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final Comparator<ActivityLog> NEWEST_FIRST = Comparator.comparing(ActivityLog::getCreatedAt)
+            .thenComparing(ActivityLog::getId).reversed();
+
     @Autowired
     private ActivityLogRepository activityLogRepository;
 
+    @Autowired
+    private ActivityLogArchive activityLogArchive;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ActivityLogWriter activityLogWriter;
+
+    @Autowired
+    private LiveEventBus liveEventBus;
+
+    // Entries are written behind by ActivityLogWriter; the returned entry has no id yet.
+    // Open live feeds get the entry straight away.
     public ActivityLog save(ActivityLog activityLog) {
-        return activityLogRepository.save(activityLog);
+        if (activityLog.getCreatedAt() == null) {
+            activityLog.setCreatedAt(LocalDateTime.now());
+        }
+        activityLogWriter.append(activityLog);
+        if (liveEventBus.hasSubscribers()) {
+            liveEventBus.publish("activity", ActivityFeedEntry.from(activityLog, describe(activityLog)));
+        }
+        return activityLog;
     }
 
-    public List<ActivityLog> findAll() {
-        return activityLogRepository.findAllOrderByCreatedAtDesc();
+    public List<ActivityLog> saveAll(List<ActivityLog> activityLogs) {
+        for (ActivityLog activityLog : activityLogs) {
+            save(activityLog);
+        }
+        return activityLogs;
     }
 
-    public List<ActivityLog> findByActionType(String actionType) {
-        return activityLogRepository.findByActionType(actionType);
-    }
+    // Newest first, keyset on (createdAt, id). Every filter is optional and they combine; each has
+    // an index that leads with the filter column followed by (created_at, id).
+    // With includeArchived the page is merged with entries already moved to the archive files.
+    public CursorPage<ActivityLog> findPage(String actionType, Long userId, Long bookId,
+                                            LocalDateTime start, LocalDateTime end, String pageToken, int size,
+                                            boolean includeArchived) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Specification<ActivityLog> spec = fetchUserAndBook();
+        if (actionType != null && !actionType.isBlank()) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("actionType"), actionType));
+        }
+        if (userId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("user").get("id"), userId));
+        }
+        if (bookId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("book").get("id"), bookId));
+        }
+        if (start != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), start));
+        }
+        if (end != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("createdAt"), end));
+        }
+
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        keyTypes.put("createdAt", LocalDateTime.class);
+        keyTypes.put("id", Long.class);
+        String scope = (includeArchived ? "activity+archive:" : "activity:")
+                + actionType + ":" + userId + ":" + bookId + ":" + start + ":" + end;
+        ScrollPosition position = PageTokens.toPosition(pageToken, scope, keyTypes);
+        Window<ActivityLog> window = activityLogRepository.findBy(spec, q -> q
+                .sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(limit)
+                .scroll(position));
+        if (!includeArchived) {
+            return PageTokens.toPage(window, scope, log -> log);
+        }
 
-    public List<ActivityLog> findByUserId(Long userId) {
-        return activityLogRepository.findByUser_Id(userId);
+        // Same keyset against the archive, then a merge of both newest-first runs. Ids present in
+        // both (a retention run stopped between archiving and deleting) are taken from the table.
+        LocalDateTime beforeCreatedAt = null;
+        Long beforeId = null;
+        if (position instanceof KeysetScrollPosition keyset && !keyset.isInitial()) {
+            beforeCreatedAt = (LocalDateTime) keyset.getKeys().get("createdAt");
+            beforeId = (Long) keyset.getKeys().get("id");
+        }
+        List<ActivityLogArchive.Entry> archived = activityLogArchive.read(beforeCreatedAt, beforeId, start, end,
+                e -> (actionType == null || actionType.isBlank() || actionType.equals(e.actionType()))
+                        && (userId == null || userId.equals(e.userId()))
+                        && (bookId == null || bookId.equals(e.bookId())),
+                limit + 1);
+
+        List<ActivityLog> merged = new ArrayList<>(window.getContent());
+        Set<Long> hotIds = new HashSet<>();
+        for (ActivityLog log : merged) {
+            hotIds.add(log.getId());
+        }
+        boolean archiveHasMore = archived.size() > limit;
+        Map<ActivityLog, ActivityLogArchive.Entry> fromArchive = new IdentityHashMap<>();
+        for (ActivityLogArchive.Entry entry : archived) {
+            if (!hotIds.contains(entry.id())) {
+                ActivityLog log = new ActivityLog(entry.actionType(), entry.description(), null, null);
+                log.setSubjectId(entry.subjectId());
+                log.setPayload(entry.payload());
+                log.setId(entry.id());
+                log.setCreatedAt(entry.createdAt());
+                fromArchive.put(log, entry);
+                merged.add(log);
+            }
+        }
+        merged.sort(NEWEST_FIRST);
+        boolean hasMore = merged.size() > limit || window.hasNext() || archiveHasMore;
+        List<ActivityLog> page = new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+        attachArchivedReferences(page, fromArchive);
+
+        String nextToken = null;
+        if (hasMore && !page.isEmpty()) {
+            ActivityLog last = page.get(page.size() - 1);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("createdAt", last.getCreatedAt());
+            keys.put("id", last.getId());
+            nextToken = PageTokens.encode(scope, keys);
+        }
+        return new CursorPage<>(page, nextToken, hasMore);
     }
 
-    public List<ActivityLog> findByBookId(Long bookId) {
-        return activityLogRepository.findByBook_Id(bookId);
+    // Archived rows only carry ids; load the users and books the page shows (deleted ones stay null)
+    private void attachArchivedReferences(List<ActivityLog> page, Map<ActivityLog, ActivityLogArchive.Entry> fromArchive) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> bookIds = new HashSet<>();
+        for (ActivityLog log : page) {
+            ActivityLogArchive.Entry entry = fromArchive.get(log);
+            if (entry != null) {
+                if (entry.userId() != null) {
+                    userIds.add(entry.userId());
+                }
+                if (entry.bookId() != null) {
+                    bookIds.add(entry.bookId());
+                }
+            }
+        }
+        if (userIds.isEmpty() && bookIds.isEmpty()) {
+            return;
+        }
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findAllById(bookIds).forEach(book -> books.put(book.getId(), book));
+        for (ActivityLog log : page) {
+            ActivityLogArchive.Entry entry = fromArchive.get(log);
+            if (entry != null) {
+                log.setUser(entry.userId() != null ? users.get(entry.userId()) : null);
+                log.setBook(entry.bookId() != null ? books.get(entry.bookId()) : null);
+            }
+        }
     }
 
-    public List<ActivityLog> findByDateRange(LocalDateTime start, LocalDateTime end) {
-        return activityLogRepository.findByCreatedAtBetween(start, end);
+    // User and book are eager; join them into the page query instead of one select per row
+    private static Specification<ActivityLog> fetchUserAndBook() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch("user", JoinType.LEFT);
+                root.fetch("book", JoinType.LEFT).fetch("category", JoinType.LEFT);
+            }
+            return cb.conjunction();
+        };
     }
 
-    // Helper methods to log common activities
+    // Helper methods to log common activities. Entries store ids and, where the referenced row may
+    // disappear, a small payload; the text is rendered by describe() when an entry is served.
     public void logBookIssued(Book book, User student) {
-        ActivityLog log = new ActivityLog(
-            "BOOK_ISSUED",
-            String.format("Book '%s' issued to student '%s'", book.getTitle(), student.getUsername()),
-            student,
-            book
-        );
-        save(log);
+        save(bookIssued(book, student));
+    }
+
+    public ActivityLog bookIssued(Book book, User student) {
+        return new ActivityLog("BOOK_ISSUED", student, book, null, null);
+    }
+
+    public ActivityLog bookRequested(Book book, User student) {
+        return new ActivityLog("BOOK_REQUESTED", student, book, null, null);
+    }
+
+    public ActivityLog bookRequestRejected(Book book, User student) {
+        return new ActivityLog("BOOK_REQUEST_REJECTED", student, book, null, null);
     }
 
     public void logBookReturned(Book book, User student) {
-        ActivityLog log = new ActivityLog(
-            "BOOK_RETURNED",
-            String.format("Book '%s' returned by student '%s'", book.getTitle(), student.getUsername()),
-            student,
-            book
-        );
-        save(log);
+        save(bookReturned(book, student));
+    }
+
+    public ActivityLog bookReturned(Book book, User student) {
+        return new ActivityLog("BOOK_RETURNED", student, book, null, null);
     }
 
     public void logBookAdded(Book book, User admin) {
-        ActivityLog log = new ActivityLog(
-            "BOOK_ADDED",
-            String.format("Book '%s' added by admin '%s'", book.getTitle(), admin.getUsername()),
-            admin,
-            book
-        );
-        save(log);
+        save(new ActivityLog("BOOK_ADDED", admin, book, null, null));
     }
 
+    // The book row is gone by the time the entry is read, so its title travels in the payload
     public void logBookDeleted(Book book, User admin) {
-        ActivityLog log = new ActivityLog(
-            "BOOK_DELETED",
-            String.format("Book '%s' deleted by admin '%s'", book.getTitle(), admin.getUsername()),
-            admin,
-            book
-        );
-        save(log);
+        save(new ActivityLog("BOOK_DELETED", admin, book, null, EventPayload.of("title", book.getTitle())));
     }
 
     public void logUserApproved(User user, User admin) {
-        ActivityLog log = new ActivityLog(
-            "USER_APPROVED",
-            String.format("User '%s' approved by admin '%s'", user.getUsername(), admin.getUsername()),
-            admin
-        );
-        save(log);
+        save(new ActivityLog("USER_APPROVED", admin, null, user.getId(), EventPayload.of("username", user.getUsername())));
     }
 
     public void logUserRejected(User user, User admin) {
-        ActivityLog log = new ActivityLog(
-            "USER_REJECTED",
-            String.format("User '%s' rejected by admin '%s'", user.getUsername(), admin.getUsername()),
-            admin
-        );
-        save(log);
+        save(new ActivityLog("USER_REJECTED", admin, null, user.getId(), EventPayload.of("username", user.getUsername())));
     }
 
     public void logUserDeleted(User user, User admin) {
-        ActivityLog log = new ActivityLog(
-            "USER_DELETED",
-            String.format("User '%s' deleted by admin '%s'", user.getUsername(), admin.getUsername()),
-            admin
-        );
-        save(log);
+        save(new ActivityLog("USER_DELETED", admin, null, user.getId(), EventPayload.of("username", user.getUsername())));
     }
-}
 
+    // Human-readable text of an entry. Entries written before descriptions were rendered on read
+    // keep their stored text.
+    public String describe(ActivityLog log) {
+        if (log.getDescription() != null) {
+            return log.getDescription();
+        }
+        String user = log.getUser() != null ? log.getUser().getUsername() : "(deleted user)";
+        String book = log.getBook() != null ? log.getBook().getTitle() : EventPayload.get(log.getPayload(), "title");
+        if (book == null) {
+            book = "(deleted book)";
+        }
+        String subject = EventPayload.get(log.getPayload(), "username");
+        if (subject == null) {
+            subject = log.getSubjectId() != null ? "#" + log.getSubjectId() : "(unknown user)";
+        }
+        switch (log.getActionType()) {
+            case "BOOK_ISSUED":
+                return "Book '" + book + "' issued to student '" + user + "'";
+            case "BOOK_REQUESTED":
+                return "Student " + user + " requested book: " + book;
+            case "BOOK_REQUEST_REJECTED":
+                return "Admin rejected book request: " + book + " by student " + user;
+            case "BOOK_RETURNED":
+                return "Book '" + book + "' returned by student '" + user + "'";
+            case "BOOK_ADDED":
+                return "Book '" + book + "' added by admin '" + user + "'";
+            case "BOOK_DELETED":
+                return "Book '" + book + "' deleted by admin '" + user + "'";
+            case "USER_APPROVED":
+                return "User '" + subject + "' approved by admin '" + user + "'";
+            case "USER_REJECTED":
+                return "User '" + subject + "' rejected by admin '" + user + "'";
+            case "USER_DELETED":
+                return "User '" + subject + "' deleted by admin '" + user + "'";
+            default:
+                return log.getActionType();
+        }
+    }
+}
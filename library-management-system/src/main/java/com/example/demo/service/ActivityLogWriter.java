@@ -0,0 +1,201 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ActivityLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind pipeline for activity entries. Callers append to a bounded ring buffer
+// (ArrayBlockingQueue) and return immediately; a background thread drains it and inserts
+// entries with JDBC batch INSERTs, flushing once flush-size entries are waiting or every
+// flush-interval-ms, whichever comes first. When the buffer is full the overflow policy decides:
+//   caller-runs (default) - the caller inserts its own entry, so bursts slow down but nothing is lost
+//   drop                  - the entry is discarded and counted in dropped()
+// Whatever is still buffered is written on shutdown.
+@Service
+public class ActivityLogWriter {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO activity_logs (action_type, description, user_id, book_id, subject_id, payload, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.activity-log.buffer-capacity:8192}")
+    private int bufferCapacity;
+
+    @Value("${app.activity-log.flush-size:500}")
+    private int flushSize;
+
+    @Value("${app.activity-log.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.activity-log.overflow-policy:caller-runs}")
+    private String overflowPolicy;
+
+    private TransactionTemplate transactionTemplate;
+    private BlockingQueue<ActivityLog> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        worker = new Thread(this::drainLoop, "activity-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Not interrupted: the worker notices within one flush interval and never abandons a batch mid-insert
+        running = false;
+        worker.join(flushIntervalMs + TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    public void append(ActivityLog entry) {
+        if (buffer.offer(entry)) {
+            return;
+        }
+        if ("drop".equalsIgnoreCase(overflowPolicy)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        insert(List.of(entry));
+    }
+
+    // Writes everything buffered so far on the calling thread
+    public void flush() {
+        List<ActivityLog> batch = new ArrayList<>(flushSize);
+        while (buffer.drainTo(batch, flushSize) > 0) {
+            insert(batch);
+            batch.clear();
+        }
+    }
+
+    public int pending() {
+        return buffer.size();
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        List<ActivityLog> batch = new ArrayList<>(flushSize);
+        while (running) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < flushSize) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    ActivityLog entry = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                    if (entry == null) {
+                        break;
+                    }
+                    batch.add(entry);
+                    buffer.drainTo(batch, flushSize - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    insert(batch);
+                }
+            } catch (InterruptedException e) {
+                // stop() writes what is left, including this batch
+                buffer.addAll(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Activity log writer failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void insert(List<ActivityLog> batch) {
+        try {
+            // One transaction, so a failed batch leaves nothing half-written before the row-by-row retry
+            transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind));
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // A single bad row (e.g. its book was deleted meanwhile) shouldn't lose the rest of the batch
+            for (ActivityLog entry : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, entry, true));
+                    written.incrementAndGet();
+                } catch (RuntimeException single) {
+                    insertDetached(entry, single);
+                }
+            }
+        }
+    }
+
+    // The user or book may have been deleted since the entry was logged (BOOK_DELETED is logged just
+    // before the delete); keep the entry and its description without the dangling references
+    private void insertDetached(ActivityLog entry, RuntimeException cause) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, entry, false));
+            written.incrementAndGet();
+        } catch (RuntimeException e) {
+            dropped.incrementAndGet();
+            System.err.println("Dropping activity log entry " + entry.getActionType() + ": " + cause.getMessage());
+        }
+    }
+
+    private void bind(PreparedStatement ps, ActivityLog entry) throws SQLException {
+        bind(ps, entry, true);
+    }
+
+    private void bind(PreparedStatement ps, ActivityLog entry, boolean withReferences) throws SQLException {
+        ps.setString(1, entry.getActionType());
+        ps.setString(2, entry.getDescription());
+        if (withReferences && entry.getUser() != null && entry.getUser().getId() != null) {
+            ps.setLong(3, entry.getUser().getId());
+        } else {
+            ps.setNull(3, Types.BIGINT);
+        }
+        if (withReferences && entry.getBook() != null && entry.getBook().getId() != null) {
+            ps.setLong(4, entry.getBook().getId());
+        } else {
+            ps.setNull(4, Types.BIGINT);
+        }
+        if (entry.getSubjectId() != null) {
+            ps.setLong(5, entry.getSubjectId());
+        } else {
+            ps.setNull(5, Types.BIGINT);
+        }
+        ps.setString(6, entry.getPayload());
+        ps.setTimestamp(7, Timestamp.valueOf(entry.getCreatedAt()));
+    }
+}
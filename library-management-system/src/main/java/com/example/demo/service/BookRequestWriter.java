@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Persists admitted book requests off the request thread. Requests are queued as (student, book)
+// ids and a single background thread inserts them in batches, one transaction per batch that
+// also loads the batch's books and students, then writes their BOOK_REQUESTED activity entries.
+// When the queue is full the caller stores its own request, so a long burst slows down instead
+// of losing requests. The queue is drained on shutdown. A request that can't be stored (its
+// student or book was deleted meanwhile) gives back its reservation and the pending count is
+// republished, since the client was already told it was accepted.
+@Service
+public class BookRequestWriter {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    @Autowired
+    private LiveEventBus liveEventBus;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean running = true;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::drainLoop, "book-request-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Not interrupted: the worker notices within a second and never abandons a batch mid-insert
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(11));
+        flush();
+    }
+
+    public void submit(Long studentId, Long bookId, LocalDate requestedDate) {
+        Request request = new Request(studentId, bookId, requestedDate);
+        if (!queue.offer(request)) {
+            persist(List.of(request));
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    // Writes everything queued so far on the calling thread
+    public void flush() {
+        List<Request> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    private void drainLoop() {
+        List<Request> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                Request first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Book request writer failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<Request> batch) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Issue> saved;
+        List<Request> missing = new ArrayList<>();
+        try {
+            saved = tx.execute(status -> issueRepository.saveAll(toIssues(batch, missing)));
+        } catch (RuntimeException e) {
+            // One bad request (e.g. a duplicate hold) shouldn't sink the whole batch
+            missing.clear();
+            saved = new ArrayList<>(batch.size());
+            for (Request request : batch) {
+                try {
+                    saved.addAll(tx.execute(status -> issueRepository.saveAll(toIssues(List.of(request), missing))));
+                } catch (RuntimeException single) {
+                    // An integrity violation is uk_issue_student_book_active: the student already holds this book
+                    drop(request, single instanceof DataIntegrityViolationException, single.getMessage());
+                }
+            }
+        }
+        for (Request request : missing) {
+            drop(request, false, "student or book no longer exists");
+        }
+
+        for (Issue request : saved) {
+            try {
+                activityLogService.save(activityLogService.bookRequested(request.getBook(), request.getStudent()));
+            } catch (RuntimeException e) {
+                System.err.println("Could not log book request " + request.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // PENDING issues for the requests whose student and book still exist, the others are added to
+    // missing; two queries per batch
+    private List<Issue> toIssues(List<Request> requests, List<Request> missing) {
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> studentIds = new HashSet<>();
+        for (Request request : requests) {
+            bookIds.add(request.bookId());
+            studentIds.add(request.studentId());
+        }
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findAllById(bookIds).forEach(book -> books.put(book.getId(), book));
+        Map<Long, User> students = new HashMap<>();
+        userRepository.findAllById(studentIds).forEach(student -> students.put(student.getId(), student));
+
+        List<Issue> issues = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            Book book = books.get(request.bookId());
+            User student = students.get(request.studentId());
+            if (book == null || student == null) {
+                missing.add(request);
+                continue;
+            }
+            Issue issue = new Issue();
+            issue.setBook(book);
+            issue.setStudent(student);
+            issue.setStatus("PENDING");
+            issue.setRequestedDate(request.requestedDate());
+            // issueDate and returnDate are set when the request is approved
+            issue.setReturned(false);
+            issue.setFine(0);
+            issues.add(issue);
+        }
+        return issues;
+    }
+
+    private void drop(Request request, boolean duplicate, String reason) {
+        System.err.println("Dropping book request of student " + request.studentId()
+            + " for book " + request.bookId() + ": " + reason);
+        if (duplicate) {
+            reservationLedger.releaseDuplicate(request.bookId());
+        } else {
+            reservationLedger.release(request.bookId(), request.studentId());
+        }
+        liveEventBus.publish("pending", reservationLedger.pendingRequests());
+    }
+
+    private record Request(Long studentId, Long bookId, LocalDate requestedDate) {}
+}
@@ -0,0 +1,426 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.util.BkTree;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over book title, author and genre.
+// Queries of 3+ characters are answered from trigram postings and verified against the stored
+// text, so they keep the old substring semantics; shorter queries match token prefixes.
+// Query cost depends on the size of the posting lists involved, not on the catalog size.
+// Title and author words are also kept in a BK-tree for typo-tolerant (fuzzy) lookups.
+@Service
+public class BookSearchIndex {
+
+    public static final int TITLE = 0;
+    public static final int AUTHOR = 1;
+    public static final int GENRE = 2;
+    public static final int MAX_FUZZY_DISTANCE = 2;
+
+    private static final int FIELD_COUNT = 3;
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+    private static final int BUILD_CHUNK_SIZE = 5000;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Books are mapped to dense internal doc ids so postings can be plain sorted int arrays
+    private final Map<Long, Integer> docByBookId = new HashMap<>();
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private long[] bookIds = new long[1024];
+    private String[][] texts = new String[1024][];
+    private int nextDoc = 0;
+
+    // Per field (TITLE, AUTHOR, GENRE): trigram postings and token postings
+    private final List<Map<String, PostingList>> grams = new ArrayList<>(FIELD_COUNT);
+    private final List<TreeMap<String, PostingList>> tokens = new ArrayList<>(FIELD_COUNT);
+    private final BkTree vocabulary = new BkTree();
+
+    private volatile boolean ready = false;
+
+    public BookSearchIndex() {
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            grams.add(new HashMap<>());
+            tokens.add(new TreeMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long afterId = 0L;
+        int count = 0;
+        List<BookRepository.BookText> chunk;
+        do {
+            chunk = bookRepo.findTextAfter(afterId, Limit.of(BUILD_CHUNK_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (BookRepository.BookText book : chunk) {
+                    // A concurrent save may already have indexed a fresher version
+                    if (!docByBookId.containsKey(book.getId())) {
+                        add(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre());
+                    }
+                    afterId = book.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += chunk.size();
+        } while (chunk.size() == BUILD_CHUNK_SIZE);
+        ready = true;
+        System.out.println("Book search index built: " + count + " books in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(book.getId());
+            add(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            remove(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the ids of all matching books, best match first.
+    // Non-blank criteria are ANDed; the free-text query matches any of the three fields.
+    public List<Long> search(String query, String title, String author, String genre) {
+        String q = normalize(query);
+        String[] criteria = {normalize(title), normalize(author), normalize(genre)};
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                if (criteria[f] != null) {
+                    scores = intersect(scores, matchField(f, criteria[f]));
+                }
+            }
+            if (q != null) {
+                Map<Integer, Double> any = new HashMap<>();
+                for (int f = 0; f < FIELD_COUNT; f++) {
+                    matchField(f, q).forEach((doc, score) -> any.merge(doc, score, Double::sum));
+                }
+                scores = intersect(scores, any);
+            }
+            return rank(scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Typo-tolerant search: every query word must be within edit distance of some title or
+    // author word (1 for words of 4-5 letters, up to maxDistance for longer ones, exact below).
+    // Only the vocabulary is searched, via the BK-tree; books come from the word postings.
+    // Genre stays an exact filter.
+    public List<Long> fuzzySearch(String query, String title, String author, String genre, int maxDistance) {
+        int limit = Math.min(Math.max(maxDistance, 0), MAX_FUZZY_DISTANCE);
+        String genreFilter = normalize(genre);
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            scores = fuzzyCriterion(scores, normalize(title), new int[] {TITLE}, limit);
+            scores = fuzzyCriterion(scores, normalize(author), new int[] {AUTHOR}, limit);
+            scores = fuzzyCriterion(scores, normalize(query), new int[] {TITLE, AUTHOR}, limit);
+            if (scores != null && genreFilter != null) {
+                scores = intersect(scores, matchField(GENRE, genreFilter));
+            }
+            return rank(scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Double> fuzzyCriterion(Map<Integer, Double> scores, String text, int[] fields, int limit) {
+        if (text == null) {
+            return scores;
+        }
+        for (String word : tokenize(text)) {
+            int allowed = Math.min(limit, word.length() <= 3 ? 0 : word.length() <= 5 ? 1 : 2);
+            Map<Integer, Double> matches = new HashMap<>();
+            for (BkTree.Match match : vocabulary.search(word, allowed)) {
+                for (int f : fields) {
+                    PostingList postings = tokens.get(f).get(match.word());
+                    if (postings == null) {
+                        continue;
+                    }
+                    double score = FIELD_WEIGHTS[f] / (1 + match.distance());
+                    for (int i = 0; i < postings.size; i++) {
+                        matches.merge(postings.docs[i], score, Math::max);
+                    }
+                }
+            }
+            scores = intersect(scores, matches);
+        }
+        return scores;
+    }
+
+    // Caller must hold the read lock
+    private List<Long> rank(Map<Integer, Double> scores) {
+        if (scores == null) {
+            return List.of();
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(e -> texts[e.getKey()][TITLE], Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(e -> bookIds[e.getKey()]));
+
+        List<Long> result = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Double> entry : ranked) {
+            result.add(bookIds[entry.getKey()]);
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByBookId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Double> matchField(int field, String q) {
+        Map<Integer, Double> matches = new HashMap<>();
+        if (q.length() >= 3) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String gram : grams(q)) {
+                PostingList postings = grams.get(field).get(gram);
+                if (postings == null) {
+                    return matches;
+                }
+                lists.add(postings);
+            }
+            // Intersect rarest grams first so intermediate results stay small
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            PostingList candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && candidates.size > 0; i++) {
+                candidates = candidates.intersect(lists.get(i));
+            }
+            for (int i = 0; i < candidates.size; i++) {
+                int doc = candidates.docs[i];
+                String text = texts[doc][field];
+                if (text.contains(q)) {
+                    matches.put(doc, score(field, text, q));
+                }
+            }
+        } else {
+            for (PostingList postings : tokens.get(field).subMap(q, q + Character.MAX_VALUE).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    matches.putIfAbsent(doc, score(field, texts[doc][field], q));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Map<Integer, Double> intersect(Map<Integer, Double> current, Map<Integer, Double> next) {
+        if (current == null) {
+            return next;
+        }
+        Map<Integer, Double> small = current.size() <= next.size() ? current : next;
+        Map<Integer, Double> large = small == current ? next : current;
+        Map<Integer, Double> result = new HashMap<>();
+        small.forEach((doc, score) -> {
+            Double other = large.get(doc);
+            if (other != null) {
+                result.put(doc, score + other);
+            }
+        });
+        return result;
+    }
+
+    // Exact field matches rank above prefix matches, which rank above word-start and plain substring matches
+    private static double score(int field, String text, String q) {
+        double score = FIELD_WEIGHTS[field];
+        if (text.equals(q)) {
+            return score * 4;
+        }
+        if (text.startsWith(q)) {
+            return score * 2;
+        }
+        int at = text.indexOf(q);
+        if (at > 0 && !Character.isLetterOrDigit(text.charAt(at - 1))) {
+            return score * 1.5;
+        }
+        return score;
+    }
+
+    private void add(Long bookId, String title, String author, String genre) {
+        int doc = freeDocs.isEmpty() ? nextDoc++ : freeDocs.pop();
+        if (doc >= bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, bookIds.length * 2);
+            texts = Arrays.copyOf(texts, texts.length * 2);
+        }
+        String[] fields = {normalizeField(title), normalizeField(author), normalizeField(genre)};
+        bookIds[doc] = bookId;
+        texts[doc] = fields;
+        docByBookId.put(bookId, doc);
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            for (String gram : grams(fields[f])) {
+                grams.get(f).computeIfAbsent(gram, k -> new PostingList()).add(doc);
+            }
+            for (String token : tokenize(fields[f])) {
+                PostingList postings = tokens.get(f).get(token);
+                if (postings == null) {
+                    postings = new PostingList();
+                    tokens.get(f).put(token, postings);
+                    if (f != GENRE) {
+                        vocabulary.add(token);
+                    }
+                }
+                postings.add(doc);
+            }
+        }
+    }
+
+    private void remove(Long bookId) {
+        Integer doc = docByBookId.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        String[] fields = texts[doc];
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            for (String gram : grams(fields[f])) {
+                removePosting(grams.get(f), gram, doc);
+            }
+            for (String token : tokenize(fields[f])) {
+                if (removePosting(tokens.get(f), token, doc) && f != GENRE) {
+                    vocabulary.remove(token);
+                }
+            }
+        }
+        texts[doc] = null;
+        bookIds[doc] = 0L;
+        freeDocs.push(doc);
+    }
+
+    // Returns true when the key has no postings left
+    private static boolean removePosting(Map<String, PostingList> postingsByKey, String key, int doc) {
+        PostingList postings = postingsByKey.get(key);
+        if (postings != null) {
+            postings.remove(doc);
+            if (postings.size == 0) {
+                postingsByKey.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private static String normalizeField(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    // Sorted, growable array of internal doc ids
+    static final class PostingList {
+        int[] docs = new int[4];
+        int size = 0;
+
+        void add(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+                size--;
+            }
+        }
+
+        PostingList intersect(PostingList other) {
+            PostingList result = new PostingList();
+            result.docs = new int[Math.max(1, Math.min(size, other.size))];
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.docs[result.size++] = docs[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,20 +1,144 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.BookListing;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.RatingSummary;
 import com.example.demo.model.Book;
 import com.example.demo.repository.BookRepository;
+import com.example.demo.util.PageTokens;
+import com.example.demo.util.Transactions;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class BookService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "title", "author");
+
     @Autowired
     private BookRepository bookRepo;
 
-    public Book save(Book book) { return bookRepo.save(book); }
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private RatingService ratingService;
+
+    // Keyset pages by title or author can't seek past a NULL key
+    @PostConstruct
+    public void fillMissingSortKeys() {
+        try {
+            int filled = bookRepo.fillMissingSortKeys();
+            if (filled > 0) {
+                System.out.println("Filled in missing title/author of " + filled + " books");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not fill in missing book titles/authors: " + e.getMessage());
+        }
+    }
+
+    public Book save(Book book) {
+        Book saved = bookRepo.save(book);
+        bookSearchIndex.index(saved);
+        bookSuggestIndex.index(saved);
+        return saved;
+    }
+
     public Book findById(Long id) { return bookRepo.findById(id).orElse(null); }
-    public void deleteById(Long id) { bookRepo.deleteById(id); }
+
+    public void deleteById(Long id) {
+        bookRepo.deleteById(id);
+        bookSearchIndex.delete(id);
+        bookSuggestIndex.delete(id);
+        reservationLedger.forget(id);
+        ratingService.forget(id);
+    }
+
+    // Listing entries for the books, with their rating summaries (one query for the whole list)
+    // when withRatings is set
+    public List<BookListing> listings(List<Book> books, boolean withRatings) {
+        Map<Long, RatingSummary> ratings = Map.of();
+        if (withRatings) {
+            List<Long> ids = new ArrayList<>(books.size());
+            for (Book book : books) {
+                ids.add(book.getId());
+            }
+            ratings = ratingService.summaries(ids);
+        }
+        List<BookListing> listings = new ArrayList<>(books.size());
+        for (Book book : books) {
+            listings.add(new BookListing(book, ratings.get(book.getId())));
+        }
+        return listings;
+    }
+
     public List<Book> findAll() { return bookRepo.findAll(); }
+
+    // Sets a new quantity and shifts available by the same delta (never below zero) in one UPDATE
+    @Transactional
+    public Book changeQuantity(Long id, int quantity) {
+        bookRepo.changeQuantity(id, quantity);
+        Transactions.afterCommit(() -> reservationLedger.invalidate(id));
+        return findById(id);
+    }
+
+    // Loads the given books, preserving the order of the ids (e.g. search ranking)
+    public List<Book> findAllByIdsInOrder(List<Long> ids) {
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : bookRepo.findAllById(ids)) {
+            byId.put(book.getId(), book);
+        }
+        List<Book> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    public CursorPage<Book> findPage(String sortBy, String direction, String pageToken, int size) {
+        String field = sortBy == null || sortBy.isBlank() ? "id" : sortBy;
+        if (!SORTABLE_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Unsupported sort field: " + sortBy + ". Use one of " + SORTABLE_FIELDS);
+        }
+        Sort.Direction dir = Sort.Direction.fromOptionalString(direction).orElse(Sort.Direction.ASC);
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        // id is always the last sort key so the keyset is unique
+        Sort sort = "id".equals(field) ? Sort.by(dir, "id") : Sort.by(dir, field, "id");
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        if (!"id".equals(field)) {
+            keyTypes.put(field, String.class);
+        }
+        keyTypes.put("id", Long.class);
+
+        String scope = "books:" + field + ":" + dir;
+        ScrollPosition position = PageTokens.toPosition(pageToken, scope, keyTypes);
+        Window<Book> window = bookRepo.findAllBy(position, sort, Limit.of(limit));
+        return PageTokens.toPage(window, scope, book -> book);
+    }
 }
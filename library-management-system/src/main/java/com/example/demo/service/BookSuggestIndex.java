@@ -0,0 +1,463 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookSuggestion;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typeahead over book titles and authors, backed by a prefix trie of words.
+// Every trie node caches its top completions by popularity (1 + times issued), so a
+// single-word prefix lookup is O(prefix length) regardless of catalog size.
+@Service
+public class BookSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Upper bound on candidates examined for multi-word queries
+    private static final int MAX_SCAN = 5000;
+    private static final int BUILD_CHUNK_SIZE = 5000;
+
+    // Most popular first, then shorter and alphabetical; id keeps distinct entries distinct
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        if (a.weight != b.weight) {
+            return a.weight > b.weight ? -1 : 1;
+        }
+        if (a.text.length() != b.text.length()) {
+            return Integer.compare(a.text.length(), b.text.length());
+        }
+        int byText = a.text.compareTo(b.text);
+        return byText != 0 ? byText : Long.compare(a.id, b.id);
+    };
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private IssueRepository issueRepo;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<Long, IndexedBook> books = new HashMap<>();
+    private final Map<String, Entry> authors = new HashMap<>();
+    private long nextEntryId = 1;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> issueCounts = new HashMap<>();
+        for (IssueRepository.BookIssueCount count : issueRepo.countIssuesByBook()) {
+            issueCounts.put(count.getBookId(), count.getIssueCount());
+        }
+
+        long afterId = 0L;
+        List<BookRepository.BookText> chunk;
+        do {
+            chunk = bookRepo.findTextAfter(afterId, Limit.of(BUILD_CHUNK_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (BookRepository.BookText book : chunk) {
+                    if (!books.containsKey(book.getId())) {
+                        addBook(book.getId(), book.getTitle(), book.getAuthor(), 1 + issueCounts.getOrDefault(book.getId(), 0L));
+                    }
+                    afterId = book.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (chunk.size() == BUILD_CHUNK_SIZE);
+        System.out.println("Book suggest index built: " + books.size() + " books in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            IndexedBook existing = books.get(book.getId());
+            if (existing != null && Objects.equals(existing.title, book.getTitle())
+                    && Objects.equals(existing.author, book.getAuthor())) {
+                return;
+            }
+            long weight = existing != null ? existing.weight : 1;
+            removeBook(book.getId());
+            addBook(book.getId(), book.getTitle(), book.getAuthor(), weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bumps the popularity of a book (and its author) after it has been issued
+    public void recordIssue(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            IndexedBook book = books.get(bookId);
+            if (book == null) {
+                return;
+            }
+            book.weight++;
+            if (book.titleEntry != null) {
+                reweigh(book.titleEntry, 1);
+            }
+            Entry author = book.authorKey != null ? authors.get(book.authorKey) : null;
+            if (author != null) {
+                reweigh(author, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<BookSuggestion> suggest(String query, int limit) {
+        String q = BookSearchIndex.normalize(query);
+        if (q == null) {
+            return List.of();
+        }
+        int max = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        List<String> words = new ArrayList<>(BookSearchIndex.tokenize(q));
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        // The last word is still being typed unless the query ends with a separator
+        boolean lastIsPrefix = Character.isLetterOrDigit(q.charAt(q.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            List<Entry> matches = new ArrayList<>(max);
+            if (words.size() == 1 && lastIsPrefix) {
+                Node node = find(words.get(0));
+                if (node != null) {
+                    for (int i = 0; i < node.top.length && i < max; i++) {
+                        matches.add(node.top[i]);
+                    }
+                }
+            } else {
+                matches = scan(words, lastIsPrefix, max);
+            }
+
+            List<BookSuggestion> result = new ArrayList<>(matches.size());
+            for (Entry entry : matches) {
+                result.add(new BookSuggestion(entry.text, entry.type, entry.bookId, entry.weight));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Multi-word queries walk the rarest complete word's entries in ranking order and
+    // keep those that also contain every other word
+    private List<Entry> scan(List<String> words, boolean lastIsPrefix, int max) {
+        int complete = lastIsPrefix ? words.size() - 1 : words.size();
+        TreeSet<Entry> pivot = null;
+        for (int i = 0; i < complete; i++) {
+            Node node = find(words.get(i));
+            if (node == null || node.terminal == null) {
+                return List.of();
+            }
+            if (pivot == null || node.terminal.size() < pivot.size()) {
+                pivot = node.terminal;
+            }
+        }
+
+        List<Entry> matches = new ArrayList<>(max);
+        int scanned = 0;
+        for (Entry entry : pivot) {
+            if (matches.size() == max || scanned++ == MAX_SCAN) {
+                break;
+            }
+            if (containsWords(entry, words, complete, lastIsPrefix)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsWords(Entry entry, List<String> words, int complete, boolean lastIsPrefix) {
+        for (int i = 0; i < complete; i++) {
+            if (!Arrays.asList(entry.words).contains(words.get(i))) {
+                return false;
+            }
+        }
+        if (lastIsPrefix) {
+            String prefix = words.get(words.size() - 1);
+            for (String word : entry.words) {
+                if (word.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void addBook(Long bookId, String title, String author, long weight) {
+        IndexedBook book = new IndexedBook(title, author, weight);
+        if (title != null && !title.isBlank()) {
+            book.titleEntry = new Entry(nextEntryId++, title.trim(), "TITLE", bookId, weight);
+            insert(book.titleEntry);
+        }
+        String authorKey = BookSearchIndex.normalize(author);
+        if (authorKey != null) {
+            book.authorKey = authorKey;
+            Entry entry = authors.get(authorKey);
+            if (entry == null) {
+                entry = new Entry(nextEntryId++, author.trim(), "AUTHOR", null, 0);
+                authors.put(authorKey, entry);
+            } else {
+                remove(entry);
+            }
+            entry.weight += weight;
+            entry.books++;
+            insert(entry);
+        }
+        books.put(bookId, book);
+    }
+
+    private void removeBook(Long bookId) {
+        IndexedBook book = books.remove(bookId);
+        if (book == null) {
+            return;
+        }
+        if (book.titleEntry != null) {
+            remove(book.titleEntry);
+        }
+        Entry author = book.authorKey != null ? authors.get(book.authorKey) : null;
+        if (author != null) {
+            remove(author);
+            author.weight -= book.weight;
+            author.books--;
+            if (author.books > 0) {
+                insert(author);
+            } else {
+                authors.remove(book.authorKey);
+            }
+        }
+    }
+
+    // Weight is part of the ordering, so the entry has to leave the trie while it changes
+    private void reweigh(Entry entry, long delta) {
+        remove(entry);
+        entry.weight += delta;
+        insert(entry);
+    }
+
+    private void insert(Entry entry) {
+        for (String word : entry.words) {
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.childOrCreate(word.charAt(i));
+                node.offer(entry);
+            }
+            if (node.terminal == null) {
+                node.terminal = new TreeSet<>(RANKING);
+            }
+            node.terminal.add(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        // Detach from every word first, then repair cached tops deepest-first so each
+        // node is recomputed from already repaired children
+        Map<Node, PathStep> steps = new IdentityHashMap<>();
+        for (String word : entry.words) {
+            Node parent = root;
+            for (int i = 0; i < word.length() && parent != null; i++) {
+                Node node = parent.child(word.charAt(i));
+                if (node != null) {
+                    steps.putIfAbsent(node, new PathStep(parent, word.charAt(i), node, i));
+                    if (i == word.length() - 1 && node.terminal != null) {
+                        node.terminal.remove(entry);
+                    }
+                }
+                parent = node;
+            }
+        }
+
+        List<PathStep> ordered = new ArrayList<>(steps.values());
+        ordered.sort(Comparator.comparingInt((PathStep s) -> -s.depth));
+        for (PathStep step : ordered) {
+            if (step.node.holds(entry)) {
+                step.node.recompute();
+            }
+            if (step.node.isEmpty()) {
+                step.parent.removeChild(step.label);
+            }
+        }
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static final class Entry {
+        final long id;
+        final String text;
+        final String type;
+        final Long bookId;
+        final String[] words;
+        long weight;
+        int books;
+
+        Entry(long id, String text, String type, Long bookId, long weight) {
+            this.id = id;
+            this.text = text;
+            this.type = type;
+            this.bookId = bookId;
+            this.weight = weight;
+            Set<String> tokens = BookSearchIndex.tokenize(BookSearchIndex.normalize(text));
+            this.words = tokens.toArray(new String[0]);
+        }
+    }
+
+    private static final class IndexedBook {
+        final String title;
+        final String author;
+        long weight;
+        Entry titleEntry;
+        String authorKey;
+
+        IndexedBook(String title, String author, long weight) {
+            this.title = title;
+            this.author = author;
+            this.weight = weight;
+        }
+    }
+
+    private record PathStep(Node parent, char label, Node node, int depth) {}
+
+    private static final class Node {
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        TreeSet<Entry> terminal; // entries having a word that ends here
+        Entry[] top = NO_ENTRIES; // best entries in this subtree, in ranking order
+
+        Node child(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            return at >= 0 ? children[at] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            if (at >= 0) {
+                return children[at];
+            }
+            at = -at - 1;
+            Node node = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = label;
+            newChildren[at] = node;
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            labels = newLabels;
+            children = newChildren;
+            return node;
+        }
+
+        void removeChild(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            if (at < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(labels, at + 1, newLabels, at, labels.length - at - 1);
+            System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return children.length == 0 && (terminal == null || terminal.isEmpty());
+        }
+
+        boolean holds(Entry entry) {
+            for (Entry existing : top) {
+                if (existing == entry) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void offer(Entry entry) {
+            if (top.length == MAX_SUGGESTIONS && RANKING.compare(entry, top[top.length - 1]) >= 0) {
+                return;
+            }
+            if (holds(entry)) {
+                return;
+            }
+            int at = Arrays.binarySearch(top, entry, RANKING);
+            at = at >= 0 ? at : -at - 1;
+            int size = Math.min(top.length + 1, MAX_SUGGESTIONS);
+            Entry[] newTop = new Entry[size];
+            System.arraycopy(top, 0, newTop, 0, at);
+            newTop[at] = entry;
+            System.arraycopy(top, at, newTop, at + 1, size - at - 1);
+            top = newTop;
+        }
+
+        void recompute() {
+            List<Entry> candidates = new ArrayList<>();
+            if (terminal != null) {
+                for (Entry entry : terminal) {
+                    if (candidates.size() == MAX_SUGGESTIONS) {
+                        break;
+                    }
+                    candidates.add(entry);
+                }
+            }
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(RANKING);
+            List<Entry> best = new ArrayList<>(MAX_SUGGESTIONS);
+            for (Entry entry : candidates) {
+                if (best.size() == MAX_SUGGESTIONS) {
+                    break;
+                }
+                if (best.isEmpty() || best.get(best.size() - 1) != entry) {
+                    best.add(entry);
+                }
+            }
+            top = best.toArray(NO_ENTRIES);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// SMTP delivery with connection reuse. sendBatch() sends a list of messages over a single SMTP
+// session (connect, authenticate, STARTTLS once) instead of one session per message, which is
+// what dominates the cost of a large campaign. sendAll() splits a campaign into batches of
+// app.mail.send-batch-size and sends app.mail.concurrency batches at a time, each on its own
+// connection. Failures are reported per message so the caller can retry just those.
+@Service
+public class BulkMailSender {
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Value("${spring.mail.username:}")
+    private String fromEmail;
+
+    @Value("${app.mail.send-batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.concurrency:4}")
+    private int concurrency;
+
+    public record Result(int sent, Map<SimpleMailMessage, Exception> failed) {}
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    // Messages that failed, mapped to their error; an empty map means all were accepted
+    public Map<SimpleMailMessage, Exception> sendBatch(List<SimpleMailMessage> messages) {
+        Map<SimpleMailMessage, Exception> failed = new IdentityHashMap<>();
+        if (messages.isEmpty()) {
+            return failed;
+        }
+        if (mailSender == null || fromEmail == null || fromEmail.trim().isEmpty()) {
+            for (SimpleMailMessage message : messages) {
+                System.out.println("Email service not configured. Would send email to: " + message.getTo()[0]);
+                System.out.println("Subject: " + message.getSubject());
+                System.out.println("Body: " + message.getText());
+            }
+            return failed;
+        }
+        for (SimpleMailMessage message : messages) {
+            message.setFrom(fromEmail);
+        }
+        try {
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            // Per-message failures; when the connection itself fails every message is listed. The
+            // map is keyed by equals(), so identical messages share one entry: look each one up.
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (SimpleMailMessage message : messages) {
+                Exception error = failedMessages.get(message);
+                if (error != null) {
+                    failed.put(message, error);
+                }
+            }
+            if (failed.isEmpty()) {
+                messages.forEach(message -> failed.put(message, e));
+            }
+        } catch (RuntimeException e) {
+            // Authentication or configuration: nothing went out
+            messages.forEach(message -> failed.put(message, e));
+        }
+        return failed;
+    }
+
+    public Result sendAll(List<SimpleMailMessage> messages) {
+        return sendAll(messages, batchSize, concurrency);
+    }
+
+    public Result sendAll(List<SimpleMailMessage> messages, int batchSize, int concurrency) {
+        List<List<SimpleMailMessage>> batches = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            batches.add(messages.subList(from, Math.min(from + batchSize, messages.size())));
+        }
+        Map<SimpleMailMessage, Exception> failed = new IdentityHashMap<>();
+        if (batches.size() <= 1 || concurrency <= 1) {
+            for (List<SimpleMailMessage> batch : batches) {
+                failed.putAll(sendBatch(batch));
+            }
+            return new Result(messages.size() - failed.size(), failed);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(concurrency, batches.size()));
+        try {
+            List<Future<Map<SimpleMailMessage, Exception>>> results = new ArrayList<>(batches.size());
+            for (List<SimpleMailMessage> batch : batches) {
+                results.add(pool.submit(() -> sendBatch(batch)));
+            }
+            for (Future<Map<SimpleMailMessage, Exception>> result : results) {
+                failed.putAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending emails", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException("Bulk email send failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(messages.size() - failed.size(), failed);
+    }
+}
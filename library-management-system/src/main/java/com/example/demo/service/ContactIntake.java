@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Contact;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Admission for the public contact form, checked in memory before anything touches the database:
+//   - a token bucket per client address allows burst submissions, refilled at per-minute a minute
+//   - a submission whose (email, message) digest was seen within duplicate-window-minutes is
+//     accepted but dropped, so double posts and replayed spam cost nothing
+// An admitted submission is stored, with its two emails queued, on the calling thread
+// (ContactService.receive), so ACCEPTED means it was saved.
+@Service
+public class ContactIntake {
+
+    public enum Admission { ACCEPTED, DUPLICATE, RATE_LIMITED }
+
+    @Autowired
+    private ContactService contactService;
+
+    @Value("${app.contact.burst:5}")
+    private int burst;
+
+    @Value("${app.contact.per-minute:2}")
+    private double perMinute;
+
+    @Value("${app.contact.duplicate-window-minutes:60}")
+    private long duplicateWindowMinutes;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    // First 64 bits of the submission digest -> time (ms) until which repeats are dropped
+    private final Map<Long, Long> recent = new ConcurrentHashMap<>();
+
+    public Admission submit(Contact contact, String clientAddress) {
+        if (!take(clientAddress)) {
+            return Admission.RATE_LIMITED;
+        }
+        long key = digest(contact);
+        long now = System.currentTimeMillis();
+        long until = now + TimeUnit.MINUTES.toMillis(duplicateWindowMinutes);
+        boolean[] duplicate = {false};
+        recent.compute(key, (k, seenUntil) -> {
+            if (seenUntil != null && seenUntil > now) {
+                duplicate[0] = true;
+                return seenUntil;
+            }
+            return until;
+        });
+        if (duplicate[0]) {
+            return Admission.DUPLICATE;
+        }
+        try {
+            contactService.receive(contact);
+        } catch (RuntimeException e) {
+            // Not stored, so a retry must not be taken for a duplicate
+            recent.remove(key, until);
+            throw e;
+        }
+        return Admission.ACCEPTED;
+    }
+
+    // Forgets buckets that have refilled (idle clients) and digests whose window has passed
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        recent.values().removeIf(until -> until <= now);
+        buckets.values().removeIf(bucket -> {
+            synchronized (bucket) {
+                bucket.refill(now, burst, perMinute);
+                return bucket.tokens >= burst;
+            }
+        });
+    }
+
+    private boolean take(String clientAddress) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = buckets.computeIfAbsent(clientAddress == null ? "" : clientAddress, a -> new Bucket(burst, now));
+        synchronized (bucket) {
+            bucket.refill(now, burst, perMinute);
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens--;
+            return true;
+        }
+    }
+
+    // Case and whitespace changes don't make a message new
+    private static long digest(Contact contact) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(normalize(contact.getEmail()).getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(normalize(contact.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(sha.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(int burst, long now) {
+            tokens = burst;
+            refilledAt = now;
+        }
+
+        void refill(long now, int burst, double perMinute) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perMinute / 60_000.0);
+            refilledAt = now;
+        }
+    }
+}
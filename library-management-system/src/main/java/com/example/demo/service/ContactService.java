@@ -1,28 +1,88 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPage;
 import com.example.demo.model.Contact;
 import com.example.demo.repository.ContactRepository;
+import com.example.demo.util.PageTokens;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ContactService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${spring.mail.username:}")
+    private String adminEmail;
+
     public Contact save(Contact contact) {
         return contactRepository.save(contact);
     }
 
+    // Stores a contact-form submission and queues the admin notification and the sender's
+    // confirmation in the same transaction (EmailQueue outbox): both mails or neither
+    @Transactional
+    public Contact receive(Contact contact) {
+        Contact saved = contactRepository.save(contact);
+        String to = adminEmail != null && !adminEmail.trim().isEmpty() ? adminEmail : "library@example.com";
+        emailService.sendAll(List.of(
+            emailService.contactEmail(to, saved.getEmail(), saved.getName(), saved.getSubject(), saved.getMessage()),
+            emailService.contactConfirmation(saved.getEmail(), saved.getName(), saved.getSubject())));
+        return saved;
+    }
+
     public Contact findById(Long id) {
         return contactRepository.findById(id).orElse(null);
     }
 
-    public List<Contact> findAll() {
-        return contactRepository.findAllOrderedByCreatedAtDesc();
+    // Newest first, keyset on (createdAt, id); read filters on read state when given. Both are
+    // served by an index ending in (created_at, id), so a page costs the same deep in the inbox.
+    public CursorPage<Contact> findPage(Boolean read, String pageToken, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Specification<Contact> spec = (root, query, cb) ->
+                read == null ? cb.conjunction() : cb.equal(root.get("read"), read);
+
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        keyTypes.put("createdAt", LocalDateTime.class);
+        keyTypes.put("id", Long.class);
+        String scope = "contacts:" + read;
+        ScrollPosition position = PageTokens.toPosition(pageToken, scope, keyTypes);
+        Window<Contact> window = contactRepository.findBy(spec, q -> q
+                .sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(limit)
+                .scroll(position));
+        return PageTokens.toPage(window, scope, contact -> contact);
+    }
+
+    public long count() {
+        return contactRepository.count();
+    }
+
+    public long countUnread() {
+        return contactRepository.countByRead(false);
+    }
+
+    // False if there is no such message
+    public boolean markRead(Long id, boolean read) {
+        return contactRepository.markRead(id, read) > 0;
     }
 
     public void deleteById(Long id) {
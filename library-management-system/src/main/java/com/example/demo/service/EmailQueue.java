@@ -0,0 +1,339 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.EmailQueueStats;
+import com.example.demo.model.QueuedEmail;
+import com.example.demo.repository.QueuedEmailRepository;
+import com.example.demo.util.Transactions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.AddressException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent outgoing mail queue, also the transactional outbox for notifications: enqueue()
+// stores the message in email_queue within the caller's transaction, if there is one, and
+// returns. A relay thread claims due messages in batches of relay-batch-size (one SELECT and
+// one UPDATE per batch) and hands them, send-batch-size at a time, to a fixed pool of sender
+// threads that each send their batch over one SMTP connection (BulkMailSender). No request ever
+// waits for the SMTP server and nothing is sent for a change that was rolled back. A failed send is retried with exponential backoff
+// (initial-backoff-ms doubling up to max-backoff-ms, with jitter) and dead-lettered (status DEAD,
+// last error kept) after max-attempts or when the message itself is malformed. Sent messages are
+// deleted. Messages left in SENDING by a crash are sent again on startup, so delivery is at least once.
+// With max-per-second set, the relay claims no faster than that (a token bucket holding one
+// second's worth), so a large run of reminders drains at a pace the SMTP provider accepts.
+@Service
+public class EmailQueue {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO email_queue (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueuedEmailRepository queuedEmailRepository;
+
+    @Autowired
+    private BulkMailSender bulkMailSender;
+
+    @Value("${app.mail.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.mail.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.initial-backoff-ms:2000}")
+    private long initialBackoffMs;
+
+    @Value("${app.mail.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.mail.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.mail.relay-batch-size:100}")
+    private int relayBatchSize;
+
+    // 0 = unlimited
+    @Value("${app.mail.max-per-second:0}")
+    private double maxPerSecond;
+
+    private ThreadPoolExecutor senders;
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+    private final AtomicLong queueDelayMillis = new AtomicLong();
+    private final AtomicLong maxQueueDelayMillis = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread relay;
+    // Token bucket, touched only by the relay thread
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    @PostConstruct
+    public void start() {
+        try {
+            queuedEmailRepository.releaseInFlight();
+        } catch (RuntimeException e) {
+            System.err.println("Could not release in-flight emails: " + e.getMessage());
+        }
+        // The relay never claims more than the senders plus their queue can hold (every task carries at
+        // least one message), so execute() never rejects
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(relayBatchSize + concurrency * bulkMailSender.batchSize()), runnable -> {
+                Thread thread = new Thread(runnable, "email-sender-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        relay = new Thread(this::relayLoop, "email-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Unsent messages stay in the table; anything mid-send is marked SENDING and resent on next start
+        running = false;
+        wakeups.release();
+        relay.join(TimeUnit.SECONDS.toMillis(5));
+        senders.shutdown();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Stores the message; the relay thread is woken once the surrounding transaction (if any) commits
+    public void enqueue(String to, String subject, String body) {
+        queuedEmailRepository.save(new QueuedEmail(to, subject, body));
+        Transactions.afterCommit(wakeups::release);
+    }
+
+    // One JDBC batch rather than saveAll(): IDENTITY ids turn off Hibernate's insert batching, and
+    // with rewriteBatchedStatements the driver sends the batch as a single multi-row INSERT
+    public void enqueueAll(List<SimpleMailMessage> messages) {
+        List<QueuedEmail> rows = new ArrayList<>(messages.size());
+        for (SimpleMailMessage message : messages) {
+            rows.add(new QueuedEmail(message.getTo()[0], message.getSubject(), message.getText()));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), this::bind);
+        Transactions.afterCommit(wakeups::release);
+    }
+
+    private void bind(PreparedStatement ps, QueuedEmail email) throws SQLException {
+        ps.setString(1, email.getRecipient());
+        ps.setString(2, email.getSubject());
+        ps.setString(3, email.getBody());
+        ps.setString(4, email.getStatus());
+        ps.setInt(5, email.getAttempts());
+        ps.setTimestamp(6, Timestamp.valueOf(email.getNextAttemptAt()));
+        ps.setTimestamp(7, Timestamp.valueOf(email.getCreatedAt()));
+    }
+
+    public EmailQueueStats stats() {
+        EmailQueueStats stats = new EmailQueueStats();
+        stats.setPending(queuedEmailRepository.countByStatus("PENDING"));
+        stats.setSending(inFlight.get());
+        stats.setDead(queuedEmailRepository.countByStatus("DEAD"));
+        long sentCount = sent.get();
+        stats.setSent(sentCount);
+        stats.setFailedAttempts(failedAttempts.get());
+        stats.setDeadLettered(deadLettered.get());
+        if (sentCount > 0) {
+            stats.setAvgSendMillis(TimeUnit.NANOSECONDS.toMillis(sendNanos.get() / sentCount));
+            stats.setAvgQueueDelayMillis(queueDelayMillis.get() / sentCount);
+        }
+        stats.setMaxSendMillis(TimeUnit.NANOSECONDS.toMillis(maxSendNanos.get()));
+        stats.setMaxQueueDelayMillis(maxQueueDelayMillis.get());
+        return stats;
+    }
+
+    public List<QueuedEmail> deadLetters(int limit) {
+        return queuedEmailRepository.findByStatusOrderByIdDesc("DEAD", Limit.of(limit));
+    }
+
+    public int requeueDead() {
+        int requeued = queuedEmailRepository.requeueDead(LocalDateTime.now());
+        wakeups.release();
+        return requeued;
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                int room = Math.min(relayBatchSize,
+                    concurrency * bulkMailSender.batchSize() + relayBatchSize - inFlight.get());
+                if (maxPerSecond > 0) {
+                    int allowed = permits();
+                    if (room > 0 && allowed <= 0) {
+                        // Rate limited: wait for the next token rather than the next wakeup
+                        Thread.sleep(Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / maxPerSecond)));
+                        continue;
+                    }
+                    room = Math.min(room, allowed);
+                }
+                int taken = 0;
+                if (room > 0) {
+                    taken = claimDue(room);
+                    tokens -= taken;
+                }
+                if (taken < room || room <= 0) {
+                    // Nothing more is due (or the senders are saturated): sleep until enqueue(), a
+                    // finished send or the next poll, which picks up retries whose backoff has expired
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Email relay failed: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private int permits() {
+        long now = System.nanoTime();
+        double burst = Math.max(1, maxPerSecond);
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * maxPerSecond);
+        refilledAt = now;
+        return (int) tokens;
+    }
+
+    private int claimDue(int limit) {
+        List<QueuedEmail> due = queuedEmailRepository.findDue(LocalDateTime.now(), Limit.of(limit));
+        if (due.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(due.size());
+        for (QueuedEmail email : due) {
+            ids.add(email.getId());
+        }
+        queuedEmailRepository.markSending(ids);
+        inFlight.addAndGet(due.size());
+        int batchSize = bulkMailSender.batchSize();
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<QueuedEmail> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            senders.execute(() -> attempt(batch));
+        }
+        return due.size();
+    }
+
+    // One SMTP session for the whole batch; messages it refused are retried on their own schedule
+    private void attempt(List<QueuedEmail> batch) {
+        try {
+            Map<SimpleMailMessage, QueuedEmail> messages = new IdentityHashMap<>();
+            for (QueuedEmail email : batch) {
+                SimpleMailMessage message = new SimpleMailMessage();
+                message.setTo(email.getRecipient());
+                message.setSubject(email.getSubject());
+                message.setText(email.getBody());
+                messages.put(message, email);
+            }
+            long start = System.nanoTime();
+            Map<SimpleMailMessage, Exception> failed = bulkMailSender.sendBatch(new ArrayList<>(messages.keySet()));
+            long perMessage = (System.nanoTime() - start) / batch.size();
+
+            List<QueuedEmail> delivered = new ArrayList<>(batch.size());
+            List<Long> deliveredIds = new ArrayList<>(batch.size());
+            for (Map.Entry<SimpleMailMessage, QueuedEmail> entry : messages.entrySet()) {
+                Exception error = failed.get(entry.getKey());
+                if (error == null) {
+                    delivered.add(entry.getValue());
+                    deliveredIds.add(entry.getValue().getId());
+                } else {
+                    recordFailure(entry.getValue(), error);
+                }
+            }
+            if (!deliveredIds.isEmpty()) {
+                queuedEmailRepository.deleteSent(deliveredIds);
+                for (QueuedEmail email : delivered) {
+                    recordSent(email, perMessage);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Outcome unknown (e.g. the delete failed); left in SENDING and sent again on next start
+            System.err.println("Email sender failed on a batch of " + batch.size() + ": " + e.getMessage());
+        } finally {
+            inFlight.addAndGet(-batch.size());
+            wakeups.release();
+        }
+    }
+
+    private void recordSent(QueuedEmail email, long sendNanosTaken) {
+        sent.incrementAndGet();
+        sendNanos.addAndGet(sendNanosTaken);
+        maxSendNanos.accumulateAndGet(sendNanosTaken, Math::max);
+        long delay = Duration.between(email.getCreatedAt(), LocalDateTime.now()).toMillis();
+        queueDelayMillis.addAndGet(delay);
+        maxQueueDelayMillis.accumulateAndGet(delay, Math::max);
+    }
+
+    private void recordFailure(QueuedEmail email, Exception e) {
+        failedAttempts.incrementAndGet();
+        int attempts = email.getAttempts() + 1;
+        String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        if (error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+        // A malformed message fails the same way every time
+        boolean permanent = e instanceof MailParseException || e instanceof MailPreparationException
+            || e instanceof AddressException;
+        try {
+            if (permanent || attempts >= maxAttempts) {
+                queuedEmailRepository.markFailed(email.getId(), "DEAD", attempts, LocalDateTime.now(), error);
+                deadLettered.incrementAndGet();
+                System.err.println("Giving up on email " + email.getId() + " to " + email.getRecipient()
+                    + " after " + attempts + " attempts: " + error);
+            } else {
+                LocalDateTime next = LocalDateTime.now().plus(Duration.ofMillis(backoffMillis(attempts)));
+                queuedEmailRepository.markFailed(email.getId(), "PENDING", attempts, next, error);
+            }
+        } catch (RuntimeException store) {
+            // Still SENDING; released and retried on the next start
+            System.err.println("Could not record failure of email " + email.getId() + ": " + store.getMessage());
+        }
+    }
+
+    // initial * 2^(attempts-1), capped, then spread by +/-20% so a burst of failures doesn't retry in lockstep
+    private long backoffMillis(int attempts) {
+        long backoff = initialBackoffMs << Math.min(attempts - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffMs) {
+            backoff = maxBackoffMs;
+        }
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (backoff * jitter);
+    }
+}
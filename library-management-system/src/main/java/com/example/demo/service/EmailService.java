@@ -1,44 +1,37 @@
 package com.example.demo.service;
 
+import com.example.demo.model.Issue;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Builds the notification emails and hands them to EmailQueue, which stores and sends them in
+// the background; none of these methods waits for the SMTP server. Called inside a transaction,
+// the email is stored in it (outbox): it is only sent if the transaction commits, and a failure
+// to store it rolls the transaction back.
 @Service
 public class EmailService {
 
-    @Autowired(required = false)
-    private JavaMailSender mailSender;
-
-    @Value("${spring.mail.username:}")
-    private String fromEmail;
+    @Autowired
+    private EmailQueue emailQueue;
 
     public void sendEmail(String to, String subject, String body) {
-        if (mailSender == null || fromEmail == null || fromEmail.trim().isEmpty()) {
-            System.out.println("Email service not configured. Would send email to: " + to);
-            System.out.println("Subject: " + subject);
-            System.out.println("Body: " + body);
+        if (to == null || to.trim().isEmpty()) {
             return;
         }
-
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            if (fromEmail != null && !fromEmail.trim().isEmpty()) {
-                message.setFrom(fromEmail);
-            }
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        } catch (Exception e) {
-            System.err.println("Failed to send email: " + e.getMessage());
-            e.printStackTrace();
-        }
+        emailQueue.enqueue(to, subject, body);
     }
 
     public void sendBookIssuedConfirmation(String to, String bookTitle, String issueDate, String returnDate) {
+        SimpleMailMessage message = bookIssuedConfirmation(to, bookTitle, issueDate, returnDate);
+        sendEmail(to, message.getSubject(), message.getText());
+    }
+
+    public SimpleMailMessage bookIssuedConfirmation(String to, String bookTitle, String issueDate, String returnDate) {
         String subject = "Book Issued - Library Management System";
         String body = String.format(
             "Dear Student,\n\n" +
@@ -51,10 +44,83 @@ public class EmailService {
             "Library Management System",
             bookTitle, issueDate, returnDate
         );
-        sendEmail(to, subject, body);
+        return message(to, subject, body);
+    }
+
+    private SimpleMailMessage message(String to, String subject, String body) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(body);
+        return message;
+    }
+
+    // One confirmation for several books issued to the same student at once
+    public SimpleMailMessage booksIssuedConfirmation(String to, List<Issue> issues) {
+        StringBuilder books = new StringBuilder();
+        for (Issue issue : issues) {
+            books.append(String.format("- %s (issued %s, due %s)\n",
+                issue.getBook().getTitle(), issue.getIssueDate(), issue.getReturnDate()));
+        }
+        String subject = "Books Issued - Library Management System";
+        String body = String.format(
+            "Dear Student,\n\n" +
+            "Your book requests have been processed. The following %d books were issued to you:\n\n" +
+            "%s\n" +
+            "Please return them on or before their due dates to avoid fines.\n\n" +
+            "Thank you,\n" +
+            "Library Management System",
+            issues.size(), books
+        );
+        return message(to, subject, body);
+    }
+
+    // The daily digest: every loan of one student that is due soon or overdue, in a single email
+    public SimpleMailMessage loanDigest(String to, List<Issue> dueSoon, List<Issue> overdue, LocalDate today) {
+        StringBuilder body = new StringBuilder("Dear Student,\n\n");
+        if (!overdue.isEmpty()) {
+            int totalFine = 0;
+            body.append("These books are overdue and need to be returned immediately:\n\n");
+            for (Issue issue : overdue) {
+                int fine = IssueService.calculateFine(issue.getReturnDate(), today);
+                totalFine += fine;
+                body.append(String.format("- %s (due %s, current fine ₹%d)\n",
+                    issue.getBook().getTitle(), issue.getReturnDate(), fine));
+            }
+            body.append(String.format("\nTotal fine so far: ₹%d\n\n", totalFine));
+        }
+        if (!dueSoon.isEmpty()) {
+            body.append("These books are due soon:\n\n");
+            for (Issue issue : dueSoon) {
+                body.append(String.format("- %s (due %s, %d days remaining)\n",
+                    issue.getBook().getTitle(), issue.getReturnDate(),
+                    ChronoUnit.DAYS.between(today, issue.getReturnDate())));
+            }
+            body.append("\n");
+        }
+        body.append("Please return your books on time to avoid fines.\n\n" +
+            "Thank you,\n" +
+            "Library Management System");
+        String subject = overdue.isEmpty()
+            ? "Book Return Reminder - Library Management System"
+            : "Overdue Book Alert - Library Management System";
+        return message(to, subject, body.toString());
+    }
+
+    // Queues a batch with one JDBC batch insert (see EmailQueue.enqueueAll)
+    public void sendAll(List<SimpleMailMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        emailQueue.enqueueAll(messages);
     }
 
     public void sendBookReminder(String to, String bookTitle, String returnDate, long daysRemaining) {
+        SimpleMailMessage message = bookReminder(to, bookTitle, returnDate, daysRemaining);
+        sendEmail(to, message.getSubject(), message.getText());
+    }
+
+    public SimpleMailMessage bookReminder(String to, String bookTitle, String returnDate, long daysRemaining) {
         String subject = "Book Return Reminder - Library Management System";
         String body = String.format(
             "Dear Student,\n\n" +
@@ -67,10 +133,15 @@ public class EmailService {
             "Library Management System",
             bookTitle, returnDate, daysRemaining
         );
-        sendEmail(to, subject, body);
+        return message(to, subject, body);
     }
 
     public void sendOverdueAlert(String to, String bookTitle, String returnDate, int fineAmount) {
+        SimpleMailMessage message = overdueAlert(to, bookTitle, returnDate, fineAmount);
+        sendEmail(to, message.getSubject(), message.getText());
+    }
+
+    public SimpleMailMessage overdueAlert(String to, String bookTitle, String returnDate, int fineAmount) {
         String subject = "Overdue Book Alert - Library Management System";
         String body = String.format(
             "Dear Student,\n\n" +
@@ -83,7 +154,7 @@ public class EmailService {
             "Library Management System",
             bookTitle, returnDate, fineAmount
         );
-        sendEmail(to, subject, body);
+        return message(to, subject, body);
     }
 
     public void sendAccountApprovalNotification(String to, String username) {
@@ -100,6 +171,11 @@ public class EmailService {
     }
 
     public void sendContactEmail(String to, String from, String name, String subject, String message) {
+        SimpleMailMessage email = contactEmail(to, from, name, subject, message);
+        sendEmail(to, email.getSubject(), email.getText());
+    }
+
+    public SimpleMailMessage contactEmail(String to, String from, String name, String subject, String message) {
         String emailSubject = "Contact Form: " + subject;
         String body = String.format(
             "You have received a new contact form submission:\n\n" +
@@ -111,6 +187,20 @@ public class EmailService {
             "This email was sent from the Library Management System contact form.",
             name, from, subject, message
         );
-        sendEmail(to, emailSubject, body);
+        return message(to, emailSubject, body);
+    }
+
+    public SimpleMailMessage contactConfirmation(String to, String name, String subject) {
+        String confirmationSubject = "Thank You for Contacting Us - Library Management System";
+        String body = String.format(
+            "Dear %s,\n\n" +
+            "Thank you for contacting us. We have received your message:\n\n" +
+            "Subject: %s\n\n" +
+            "We will get back to you as soon as possible.\n\n" +
+            "Best regards,\n" +
+            "Library Management System Team",
+            name, subject
+        );
+        return message(to, confirmationSubject, body);
     }
 }
@@ -1,46 +1,125 @@
 package com.example.demo.service;
 
-import com.example.demo.model.Book;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedbackView;
 import com.example.demo.model.Feedback;
-import com.example.demo.model.User;
 import com.example.demo.repository.FeedbackRepository;
+import com.example.demo.util.PageTokens;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class FeedbackService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private FeedbackRepository feedbackRepo;
 
-    public Feedback save(Feedback feedback) {
-        return feedbackRepo.save(feedback);
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Each change and its effect on the book's rating aggregate commit together
+    public Feedback create(Feedback feedback) {
+        Long bookId = feedback.getBook().getId();
+        ratingService.ensureRow(bookId);
+        return transactionTemplate().execute(status -> {
+            Feedback saved = feedbackRepo.save(feedback);
+            ratingService.apply(bookId, saved.getRating(), 0);
+            return saved;
+        });
     }
 
-    public Feedback findById(Long id) {
-        return feedbackRepo.findById(id).orElse(null);
+    // Null if the feedback no longer exists
+    public Feedback update(Long id, int rating, String comment) {
+        return transactionTemplate().execute(status -> {
+            // Locked so two concurrent edits can't both subtract the same old rating
+            Feedback feedback = feedbackRepo.lockById(id).orElse(null);
+            if (feedback == null) {
+                return null;
+            }
+            int previous = feedback.getRating();
+            feedback.setRating(rating);
+            feedback.setComment(comment);
+            if (rating != previous) {
+                ratingService.apply(feedback.getBook().getId(), rating, previous);
+            }
+            return feedback;
+        });
+    }
+
+    // False if the feedback no longer exists
+    public boolean delete(Long id) {
+        return Boolean.TRUE.equals(transactionTemplate().execute(status -> {
+            Feedback feedback = feedbackRepo.lockById(id).orElse(null);
+            if (feedback == null) {
+                return false;
+            }
+            feedbackRepo.delete(feedback);
+            ratingService.apply(feedback.getBook().getId(), 0, feedback.getRating());
+            return true;
+        }));
     }
 
-    public List<Feedback> findByBook(Book book) {
-        return feedbackRepo.findByBook(book);
+    public Feedback findById(Long id) {
+        return feedbackRepo.findById(id).orElse(null);
     }
 
-    public List<Feedback> findByUser(User user) {
-        return feedbackRepo.findByUser(user);
+    public FeedbackView findViewById(Long id) {
+        return feedbackRepo.findViewById(id).orElse(null);
     }
 
-    public List<Feedback> findByBookOrderByCreatedAtDesc(Book book) {
-        return feedbackRepo.findByBookOrderByCreatedAtDesc(book);
+    // Newest first, keyset on (createdAt, id), for one book, one reviewer or (both null) everyone.
+    // Each case has an index ending in (created_at, id), so every page costs the same.
+    public CursorPage<FeedbackView> findPage(Long bookId, Long userId, String pageToken, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Specification<Feedback> spec = (root, query, cb) -> {
+            if (bookId != null) {
+                return cb.equal(root.get("book").get("id"), bookId);
+            }
+            return userId != null ? cb.equal(root.get("user").get("id"), userId) : cb.conjunction();
+        };
+
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        keyTypes.put("createdAt", LocalDateTime.class);
+        keyTypes.put("id", Long.class);
+        String scope = "feedback:" + bookId + ":" + userId;
+        ScrollPosition position = PageTokens.toPosition(pageToken, scope, keyTypes);
+        Window<Feedback> window = feedbackRepo.findBy(spec.and(fetchBookAndUser()), q -> q
+                .sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(limit)
+                .scroll(position));
+        return PageTokens.toPage(window, scope, FeedbackView::from);
     }
 
-    public List<Feedback> findAll() {
-        return feedbackRepo.findAll();
+    // Fetch-joins the associations FeedbackView reads, so a page doesn't trigger per-row selects
+    private static Specification<Feedback> fetchBookAndUser() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch("book", JoinType.INNER).fetch("category", JoinType.LEFT);
+                root.fetch("user", JoinType.INNER);
+            }
+            return cb.conjunction();
+        };
     }
 
-    public void deleteById(Long id) {
-        feedbackRepo.deleteById(id);
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
     }
 }
 
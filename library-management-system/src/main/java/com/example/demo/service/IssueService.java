@@ -1,19 +1,88 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CirculationResult;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.IssueView;
 import com.example.demo.model.Book;
 import com.example.demo.model.Issue;
 import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
 import com.example.demo.repository.IssueRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.PageTokens;
+import com.example.demo.util.Transactions;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class IssueService {
 
+    public static final int LOAN_DAYS = 7;
+    public static final int FINE_PER_DAY = 10;
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Admin circulation views: which issues they show, which columns they sort on, and their default order.
+    // Only columns that are never null within a view are sortable, so the keyset stays well defined.
+    public enum View {
+        ACTIVE(Set.of("id", "issueDate", "returnDate"), "returnDate", Sort.Direction.ASC),
+        RETURNED(Set.of("id", "issueDate", "returnDate"), "id", Sort.Direction.DESC),
+        PENDING(Set.of("id", "requestedDate"), "requestedDate", Sort.Direction.ASC);
+
+        final Set<String> sortable;
+        final String defaultSort;
+        final Sort.Direction defaultDirection;
+
+        View(Set<String> sortable, String defaultSort, Sort.Direction defaultDirection) {
+            this.sortable = sortable;
+            this.defaultSort = defaultSort;
+            this.defaultDirection = defaultDirection;
+        }
+    }
+
     @Autowired
     private IssueRepository issueRepository;
 
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private RecommendationEngine recommendationEngine;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${app.notifications.digest:true}")
+    private boolean digest;
+
     public Issue findById(Long id) {
         return issueRepository.findById(id).orElse(null);
     }
@@ -30,6 +99,15 @@ public class IssueService {
         return issueRepository.findByStudent(student);
     }
     
+    // Unreturned loans past their due date, from idx_issue_returned_due
+    public List<Issue> findOverdue(LocalDate today) {
+        return issueRepository.findOverdue(today);
+    }
+
+    public long countOverdue(LocalDate today) {
+        return issueRepository.countOverdue(today);
+    }
+
     public List<Issue> findAllReturned() {
         return issueRepository.findByReturnedTrue();
     }
@@ -46,4 +124,358 @@ public class IssueService {
         return issueRepository.findByStudentAndStatus(student, "PENDING");
     }
 
+    // One page of an admin view, filtered and ordered in the database. Book and student are fetched in
+    // the same query and flattened into IssueView, so a page costs a single bounded SELECT.
+    public CursorPage<IssueView> findPage(View view, Long studentId, Long bookId,
+                                          String sortBy, String direction, String pageToken, int size) {
+        String field = sortBy == null || sortBy.isBlank() ? view.defaultSort : sortBy;
+        if (!view.sortable.contains(field)) {
+            throw new IllegalArgumentException("Unsupported sort field: " + sortBy + ". Use one of " + view.sortable);
+        }
+        Sort.Direction dir = Sort.Direction.fromOptionalString(direction).orElse(view.defaultDirection);
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Sort sort = "id".equals(field) ? Sort.by(dir, "id") : Sort.by(dir, field, "id");
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        if (!"id".equals(field)) {
+            keyTypes.put(field, LocalDate.class);
+        }
+        keyTypes.put("id", Long.class);
+
+        Specification<Issue> spec = inView(view, field);
+        if (studentId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("student").get("id"), studentId));
+        }
+        if (bookId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("book").get("id"), bookId));
+        }
+
+        String scope = "issues:" + view + ":" + field + ":" + dir + ":" + studentId + ":" + bookId;
+        ScrollPosition position = PageTokens.toPosition(pageToken, scope, keyTypes);
+        Window<Issue> window = issueRepository.findBy(spec.and(fetchBookAndStudent()), q -> q
+                .sortBy(sort)
+                .limit(limit)
+                .scroll(position));
+        return PageTokens.toPage(window, scope, IssueView::from);
+    }
+
+    // Fetch-joins the associations IssueView reads, so a page doesn't trigger per-row selects
+    private static Specification<Issue> fetchBookAndStudent() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch("book", JoinType.INNER).fetch("category", JoinType.LEFT);
+                root.fetch("student", JoinType.INNER);
+            }
+            return cb.conjunction();
+        };
+    }
+
+    private static Specification<Issue> inView(View view, String sortField) {
+        Specification<Issue> spec = switch (view) {
+            case ACTIVE -> (root, query, cb) -> cb.and(
+                    cb.isFalse(root.get("returned")),
+                    cb.or(cb.isNull(root.get("status")), cb.equal(root.get("status"), "APPROVED")));
+            case RETURNED -> (root, query, cb) -> cb.isTrue(root.get("returned"));
+            case PENDING -> (root, query, cb) -> cb.equal(root.get("status"), "PENDING");
+        };
+        if (!"id".equals(sortField)) {
+            spec = spec.and((root, query, cb) -> cb.isNotNull(root.get(sortField)));
+        }
+        return spec;
+    }
+
+    // Pending request or unreturned loan of this book
+    public boolean hasActiveHold(Long studentId, Long bookId) {
+        return issueRepository.existsByStudent_IdAndBook_IdAndActiveHoldTrue(studentId, bookId);
+    }
+
+    public boolean hasPendingRequest(Long studentId, Long bookId) {
+        return issueRepository.existsByStudent_IdAndBook_IdAndStatus(studentId, bookId, "PENDING");
+    }
+
+    // Issues a book directly. The copy is taken with a conditional decrement in the same
+    // transaction as the Issue insert, so concurrent issues can never oversell a book.
+    // The confirmation email is queued in that transaction too (email_queue is the outbox).
+    @Transactional
+    public CirculationResult issueBook(Issue issue) {
+        if (hasActiveHold(issue.getStudent().getId(), issue.getBook().getId())) {
+            return CirculationResult.failed(null, "Student already has a request for this book or it's already issued");
+        }
+        if (bookRepository.decrementAvailable(issue.getBook().getId()) == 0) {
+            return CirculationResult.failed(null, "Book is not available");
+        }
+        // The caller's copy of the book predates the decrement; the issue carries the book as it is now
+        issue.setBook(bookRepository.findById(issue.getBook().getId()).orElseThrow());
+        LocalDate today = LocalDate.now();
+        issue.setIssueDate(today);
+        issue.setReturnDate(today.plusDays(LOAN_DAYS));
+        issue.setReturned(false);
+        issue.setFine(0);
+        Issue savedIssue = issueRepository.save(issue);
+        queueIssuedConfirmation(savedIssue);
+        Transactions.afterCommit(() -> {
+            reservationLedger.onIssued(issue.getBook().getId(), issue.getStudent().getId());
+            recommendationEngine.onIssued(issue.getStudent().getId(), issue.getBook().getId());
+        });
+        return CirculationResult.ok(savedIssue, "Book issued successfully");
+    }
+
+    @Transactional
+    public CirculationResult approveRequest(Long issueId) {
+        Issue issue = findById(issueId);
+        if (issue == null) {
+            return CirculationResult.failed(issueId, "Request not found");
+        }
+        if (!"PENDING".equals(issue.getStatus())) {
+            return CirculationResult.failed(issueId, "Request is not pending");
+        }
+
+        Long bookId = issue.getBook().getId();
+        Long studentId = issue.getStudent().getId();
+        if (bookRepository.decrementAvailable(bookId) == 0) {
+            // Reject automatically if book is no longer available
+            if (issueRepository.transitionStatus(issueId, "PENDING", "REJECTED") > 0) {
+                Transactions.afterCommit(() -> reservationLedger.release(bookId, studentId));
+            }
+            // The ledger's shelf count disagreed with the database; reload it
+            Transactions.afterCommit(() -> reservationLedger.invalidate(bookId));
+            return CirculationResult.failed(issueId, "Book is no longer available. Request rejected.");
+        }
+
+        LocalDate today = LocalDate.now();
+        if (issueRepository.markApproved(issueId, today, today.plusDays(LOAN_DAYS)) == 0) {
+            // Another admin handled the request first; give the copy back
+            bookRepository.incrementAvailable(bookId);
+            return CirculationResult.failed(issueId, "Request is not pending");
+        }
+        Issue approved = findById(issueId);
+        queueIssuedConfirmation(approved);
+        Transactions.afterCommit(() -> {
+            reservationLedger.onApproved(bookId, studentId);
+            recommendationEngine.onIssued(studentId, bookId);
+        });
+        return CirculationResult.ok(approved, "Book request approved and issued successfully");
+    }
+
+    // Written to the outbox with the loan itself: rolled back with it, delivered after commit by EmailQueue
+    private void queueIssuedConfirmation(Issue issue) {
+        SimpleMailMessage message = issuedConfirmation(issue);
+        if (message != null) {
+            emailService.sendAll(List.of(message));
+        }
+    }
+
+    // In digest mode a student approved for several books in one batch gets one email listing them all
+    private List<SimpleMailMessage> issuedConfirmations(List<Issue> issues) {
+        List<SimpleMailMessage> confirmations = new ArrayList<>();
+        if (!digest) {
+            for (Issue issue : issues) {
+                SimpleMailMessage confirmation = issuedConfirmation(issue);
+                if (confirmation != null) {
+                    confirmations.add(confirmation);
+                }
+            }
+            return confirmations;
+        }
+        Map<Long, List<Issue>> byStudent = new LinkedHashMap<>();
+        for (Issue issue : issues) {
+            byStudent.computeIfAbsent(issue.getStudent().getId(), id -> new ArrayList<>()).add(issue);
+        }
+        for (List<Issue> loans : byStudent.values()) {
+            String email = loans.get(0).getStudent().getEmail();
+            if (email == null || email.isEmpty()) {
+                continue;
+            }
+            confirmations.add(loans.size() == 1 ? issuedConfirmation(loans.get(0))
+                : emailService.booksIssuedConfirmation(email, loans));
+        }
+        return confirmations;
+    }
+
+    private SimpleMailMessage issuedConfirmation(Issue issue) {
+        User student = issue.getStudent();
+        if (student.getEmail() == null || student.getEmail().isEmpty()) {
+            return null;
+        }
+        return emailService.bookIssuedConfirmation(student.getEmail(), issue.getBook().getTitle(),
+            issue.getIssueDate().toString(), issue.getReturnDate().toString());
+    }
+
+    // Approves or rejects many pending requests in one transaction. The books involved are locked
+    // once (in id order, before the issues, like the single-request path) and copies are handed
+    // out in the order the ids were given. All changes go to managed entities and are flushed as
+    // batched UPDATEs at commit. Returns one result per distinct id, in input order.
+    @Transactional
+    public List<CirculationResult> decideRequests(List<Long> issueIds, boolean approve) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(issueIds));
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " requests can be processed at once");
+        }
+
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> studentIds = new HashSet<>();
+        for (IssueRepository.IssueRef ref : issueRepository.findRefsByIdIn(ids)) {
+            bookIds.add(ref.getBookId());
+            studentIds.add(ref.getStudentId());
+        }
+        // Books and students are loaded up front so the issues below resolve them from the persistence context
+        if (approve) {
+            bookRepository.lockAllById(bookIds);
+        } else {
+            bookRepository.findAllById(bookIds);
+        }
+        userRepository.findAllById(studentIds);
+
+        Map<Long, Issue> issues = new HashMap<>();
+        for (Issue issue : issueRepository.lockAllById(ids)) {
+            issues.put(issue.getId(), issue);
+        }
+
+        LocalDate today = LocalDate.now();
+        List<CirculationResult> results = new ArrayList<>(ids.size());
+        List<Issue> approved = new ArrayList<>();
+        for (Long id : ids) {
+            Issue issue = issues.get(id);
+            if (issue == null) {
+                results.add(CirculationResult.failed(id, "Request not found"));
+                continue;
+            }
+            if (!"PENDING".equals(issue.getStatus())) {
+                results.add(CirculationResult.failed(id, "Request is not pending"));
+                continue;
+            }
+
+            Book book = issue.getBook();
+            Long bookId = book.getId();
+            Long studentId = issue.getStudent().getId();
+            if (!approve) {
+                issue.setStatus("REJECTED");
+                Transactions.afterCommit(() -> reservationLedger.release(bookId, studentId));
+                results.add(CirculationResult.ok(issue, "Book request rejected"));
+            } else if (book.getAvailable() <= 0) {
+                issue.setStatus("REJECTED");
+                Transactions.afterCommit(() -> {
+                    reservationLedger.release(bookId, studentId);
+                    reservationLedger.invalidate(bookId);
+                });
+                results.add(CirculationResult.failed(id, "Book is no longer available. Request rejected."));
+            } else {
+                book.setAvailable(book.getAvailable() - 1);
+                issue.setStatus("APPROVED");
+                issue.setIssueDate(today);
+                issue.setReturnDate(today.plusDays(LOAN_DAYS));
+                Transactions.afterCommit(() -> {
+                    reservationLedger.onApproved(bookId, studentId);
+                    recommendationEngine.onIssued(studentId, bookId);
+                });
+                approved.add(issue);
+                results.add(CirculationResult.ok(issue, "Book request approved and issued successfully"));
+            }
+        }
+        emailService.sendAll(issuedConfirmations(approved));
+        return results;
+    }
+
+    @Transactional
+    public CirculationResult rejectRequest(Long issueId) {
+        Issue issue = findById(issueId);
+        if (issue == null) {
+            return CirculationResult.failed(issueId, "Request not found");
+        }
+        if (issueRepository.transitionStatus(issueId, "PENDING", "REJECTED") == 0) {
+            return CirculationResult.failed(issueId, "Request is not pending");
+        }
+        Transactions.afterCommit(() -> reservationLedger.release(issue.getBook().getId(), issue.getStudent().getId()));
+        return CirculationResult.ok(findById(issueId), "Book request rejected");
+    }
+
+    @Transactional
+    public CirculationResult returnBook(Long issueId) {
+        Issue issue = findById(issueId);
+        if (issue == null || issue.isReturned()) {
+            return CirculationResult.failed(issueId, "Issue not found or already returned");
+        }
+
+        int fine = calculateFine(issue.getReturnDate(), LocalDate.now());
+        if (issueRepository.markReturned(issueId, fine) == 0) {
+            return CirculationResult.failed(issueId, "Issue not found or already returned");
+        }
+        bookRepository.incrementAvailable(issue.getBook().getId());
+        Transactions.afterCommit(() -> reservationLedger.onReturned(issue.getBook().getId(), issue.getStudent().getId()));
+        return CirculationResult.ok(findById(issueId), "Book returned successfully");
+    }
+
+    // Returns many loans in one transaction (e.g. a stack scanned at the desk). Issues are locked
+    // first, as in returnBook, then updated with the same fine rule and flushed as batched UPDATEs.
+    // Copies coming back to the same book are added with a single UPDATE per book.
+    @Transactional
+    public List<CirculationResult> returnBooks(List<Long> issueIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(issueIds));
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " books can be returned at once");
+        }
+
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> studentIds = new HashSet<>();
+        for (IssueRepository.IssueRef ref : issueRepository.findRefsByIdIn(ids)) {
+            bookIds.add(ref.getBookId());
+            studentIds.add(ref.getStudentId());
+        }
+        bookRepository.findAllById(bookIds);
+        userRepository.findAllById(studentIds);
+
+        Map<Long, Issue> issues = new HashMap<>();
+        for (Issue issue : issueRepository.lockAllById(ids)) {
+            issues.put(issue.getId(), issue);
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<Long, Integer> copiesBack = new LinkedHashMap<>();
+        List<CirculationResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Issue issue = issues.get(id);
+            boolean onLoan = issue != null && !issue.isReturned()
+                    && (issue.getStatus() == null || "APPROVED".equals(issue.getStatus()));
+            if (!onLoan) {
+                results.add(CirculationResult.failed(id, "Issue not found or already returned"));
+                continue;
+            }
+            int fine = calculateFine(issue.getReturnDate(), today);
+            issue.setFine(fine);
+            issue.setReturned(true);
+            Long bookId = issue.getBook().getId();
+            Long studentId = issue.getStudent().getId();
+            copiesBack.merge(bookId, 1, Integer::sum);
+            Transactions.afterCommit(() -> reservationLedger.onReturned(bookId, studentId));
+            results.add(CirculationResult.ok(issue, fine > 0
+                    ? "Book returned successfully (fine ₹" + fine + ")"
+                    : "Book returned successfully"));
+        }
+
+        issueRepository.flush();
+        for (Map.Entry<Long, Integer> entry : copiesBack.entrySet()) {
+            bookRepository.incrementAvailableBy(entry.getKey(), entry.getValue());
+        }
+        // The books loaded above predate the increments; one read gives the results the new shelf counts
+        if (!copiesBack.isEmpty()) {
+            Map<Long, Book> books = new HashMap<>();
+            for (Book book : bookRepository.findAllById(copiesBack.keySet())) {
+                books.put(book.getId(), book);
+            }
+            for (CirculationResult result : results) {
+                if (result.isSuccess()) {
+                    result.getIssue().setBook(books.get(result.getIssue().getBook().getId()));
+                }
+            }
+        }
+        return results;
+    }
+
+    // ₹10 per day past the due date
+    public static int calculateFine(LocalDate dueDate, LocalDate returnedOn) {
+        if (dueDate == null || !returnedOn.isAfter(dueDate)) {
+            return 0;
+        }
+        return (int) (ChronoUnit.DAYS.between(dueDate, returnedOn) * FINE_PER_DAY);
+    }
 }
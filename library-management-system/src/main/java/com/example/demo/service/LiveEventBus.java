@@ -0,0 +1,232 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process publish/subscribe for the admin live feed. Publishers hand events to a bounded
+// queue and return at once; a single dispatcher thread fans them out, in order, to a bounded
+// mailbox per subscriber. Each mailbox is drained by a sender pool thread, one at a time, so a
+// dashboard that stops reading only blocks its own sender: once its mailbox holds
+// subscriber-queue-capacity events it is disconnected. With no subscribers, publish() returns
+// before building anything, so an idle system pays one volatile read per event. Events whose
+// name is in the "latest wins" set (counts) are coalesced: of several queued together only the
+// newest is delivered. When no event arrives for heartbeat-ms subscribers get a HEARTBEAT, which
+// is how dead connections are found.
+@Service
+public class LiveEventBus {
+
+    public static final String HEARTBEAT = "heartbeat";
+
+    private static final Set<String> LATEST_WINS = Set.of("pending");
+
+    // A subscriber that throws is removed
+    public interface Subscriber {
+        void deliver(String name, Object data) throws Exception;
+    }
+
+    @Value("${app.live-feed.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${app.live-feed.heartbeat-ms:20000}")
+    private long heartbeatMs;
+
+    @Value("${app.live-feed.subscriber-queue-capacity:256}")
+    private int subscriberQueueCapacity;
+
+    private BlockingQueue<Event> queue;
+    private final List<Mailbox> subscribers = new CopyOnWriteArrayList<>();
+    private ExecutorService senders;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread dispatcher;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = Executors.newCachedThreadPool(task -> {
+            Thread sender = new Thread(task, "live-event-sender-" + senderCount.incrementAndGet());
+            sender.setDaemon(true);
+            return sender;
+        });
+        dispatcher = new Thread(this::dispatchLoop, "live-event-bus");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        senders.shutdownNow();
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    // Never blocks the publisher; when the queue is full the event is dropped and counted
+    public void publish(String name, Object data) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(new Event(name, data))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribe(subscriber, () -> {});
+    }
+
+    // disconnect runs on a sender thread when the bus drops the subscriber: it failed or fell
+    // subscriber-queue-capacity events behind
+    public void subscribe(Subscriber subscriber, Runnable disconnect) {
+        subscribers.add(new Mailbox(subscriber, disconnect));
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        for (Mailbox mailbox : subscribers) {
+            if (mailbox.subscriber == subscriber) {
+                mailbox.closed.set(true);
+                subscribers.remove(mailbox);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void dispatchLoop() {
+        List<Event> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Event first = queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    deliver(new Event(HEARTBEAT, null));
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                Set<String> seen = new HashSet<>();
+                // Walk newest to oldest so the last count of each kind is the one kept
+                List<Event> toDeliver = new ArrayList<>(batch.size());
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    Event event = batch.get(i);
+                    if (!LATEST_WINS.contains(event.name()) || seen.add(event.name())) {
+                        toDeliver.add(event);
+                    }
+                }
+                for (int i = toDeliver.size() - 1; i >= 0; i--) {
+                    deliver(toDeliver.get(i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Live event bus failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(Event event) {
+        for (Mailbox mailbox : subscribers) {
+            mailbox.offer(event);
+        }
+    }
+
+    private record Event(String name, Object data) {}
+
+    // A subscriber's pending events. At most one sender drains it at a time, which keeps them in order.
+    private final class Mailbox implements Runnable {
+        private final Subscriber subscriber;
+        private final Runnable disconnect;
+        private final BlockingQueue<Event> events = new ArrayBlockingQueue<>(Math.max(1, subscriberQueueCapacity));
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Mailbox(Subscriber subscriber, Runnable disconnect) {
+            this.subscriber = subscriber;
+            this.disconnect = disconnect;
+        }
+
+        void offer(Event event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!events.offer(event)) {
+                dropped.incrementAndGet();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            Event event;
+            while (!closed.get() && (event = events.poll()) != null) {
+                try {
+                    subscriber.deliver(event.name(), event.data());
+                } catch (Exception e) {
+                    close();
+                    return;
+                }
+            }
+            scheduled.set(false);
+            // An event offered after the last poll but before the flag was cleared
+            if (!events.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                }
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.remove(this);
+            events.clear();
+            try {
+                // Not on the dispatcher: completing a stalled connection can block until its write times out
+                senders.execute(disconnect);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.IssueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Daily due-date notifications. Walks unreturned loans through idx_issue_returned_due in keyset
+// chunks of chunk-size and, for each loan,
+//   - sends one return reminder once it is due within days-before days, and
+//   - sends an overdue alert once it is past due, repeated every overdue-repeat-days for up to
+//     overdue-lookback-days.
+// Each chunk is one transaction that queues its emails in email_queue (outbox) and stamps the
+// loans as notified, so a run interrupted part-way resumes where it stopped and a restart never
+// sends twice. EmailQueue sends them in batches, at no more than app.mail.max-per-second.
+// In digest mode (app.notifications.digest) a student gets one email per run covering all of
+// their loans that are due soon or overdue, instead of one email per loan: the loans are read
+// first, grouped by student, then mailed and stamped chunk-size students per transaction.
+@Service
+public class OverdueNotificationJob {
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.reminders.days-before:2}")
+    private int reminderDaysBefore;
+
+    @Value("${app.reminders.overdue-repeat-days:7}")
+    private int overdueRepeatDays;
+
+    @Value("${app.reminders.overdue-lookback-days:90}")
+    private int overdueLookbackDays;
+
+    @Value("${app.reminders.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.notifications.digest:true}")
+    private boolean digest;
+
+    @Scheduled(cron = "${app.reminders.cron:0 0 8 * * *}")
+    public void runScheduled() {
+        Result result = scan(LocalDate.now());
+        if (result.emails() > 0) {
+            System.out.println("Queued " + result.emails() + " emails for " + result.reminders()
+                + " return reminders and " + result.overdueAlerts() + " overdue alerts");
+        }
+    }
+
+    public synchronized Result scan(LocalDate today) {
+        LocalDate dueBy = today.plusDays(reminderDaysBefore);
+        Function<Position, List<Issue>> reminderDue = after -> issueRepository.findReminderDue(today, dueBy,
+            after.returnDate(), after.id(), Limit.of(chunkSize));
+        LocalDate overdueFrom = today.minusDays(overdueLookbackDays);
+        LocalDate overdueTo = today.minusDays(1);
+        LocalDate alertedBefore = today.minusDays(Math.max(1, overdueRepeatDays) - 1L);
+        Function<Position, List<Issue>> overdueAlertDue = after -> issueRepository.findOverdueAlertDue(overdueFrom,
+            overdueTo, alertedBefore, after.returnDate(), after.id(), Limit.of(chunkSize));
+
+        if (digest) {
+            return sendDigests(today, reminderDue, overdueFrom, overdueAlertDue);
+        }
+        int reminders = notifyInChunks(today, reminderDue,
+            issue -> emailService.bookReminder(issue.getStudent().getEmail(), issue.getBook().getTitle(),
+                issue.getReturnDate().toString(), ChronoUnit.DAYS.between(today, issue.getReturnDate())),
+            ids -> issueRepository.markReminderSent(ids, today));
+        int overdueAlerts = notifyInChunks(overdueFrom, overdueAlertDue,
+            issue -> emailService.overdueAlert(issue.getStudent().getEmail(), issue.getBook().getTitle(),
+                issue.getReturnDate().toString(), IssueService.calculateFine(issue.getReturnDate(), today)),
+            ids -> issueRepository.markOverdueAlertSent(ids, today));
+        return new Result(reminders, overdueAlerts, reminders + overdueAlerts);
+    }
+
+    // One email per loan; returns the number queued. Loans whose student has no email address are
+    // stamped as well, so they aren't read again on every run.
+    private int notifyInChunks(LocalDate from, Function<Position, List<Issue>> nextChunk,
+                               Function<Issue, SimpleMailMessage> message, Consumer<List<Long>> markSent) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        // (returnDate, id) of the last loan handled
+        Position after = new Position(from.minusDays(1), 0L);
+        int queued = 0;
+        while (true) {
+            Position position = after;
+            Chunk chunk = tx.execute(status -> {
+                List<Issue> loans = nextChunk.apply(position);
+                if (loans.isEmpty()) {
+                    return null;
+                }
+                List<SimpleMailMessage> messages = new ArrayList<>(loans.size());
+                List<Long> ids = new ArrayList<>(loans.size());
+                for (Issue loan : loans) {
+                    ids.add(loan.getId());
+                    if (hasEmail(loan.getStudent())) {
+                        messages.add(message.apply(loan));
+                    }
+                }
+                emailService.sendAll(messages);
+                markSent.accept(ids);
+                return new Chunk(loans.get(loans.size() - 1), loans.size(), messages.size());
+            });
+            if (chunk == null) {
+                return queued;
+            }
+            queued += chunk.queued();
+            if (chunk.size() < chunkSize) {
+                return queued;
+            }
+            after = new Position(chunk.last().getReturnDate(), chunk.last().getId());
+        }
+    }
+
+    private Result sendDigests(LocalDate today, Function<Position, List<Issue>> reminderDue,
+                               LocalDate overdueFrom, Function<Position, List<Issue>> overdueAlertDue) {
+        Map<Long, StudentLoans> byStudent = new LinkedHashMap<>();
+        readInChunks(today, reminderDue, loan -> byStudent
+            .computeIfAbsent(loan.getStudent().getId(), id -> new StudentLoans(loan.getStudent())).dueSoon().add(loan));
+        readInChunks(overdueFrom, overdueAlertDue, loan -> byStudent
+            .computeIfAbsent(loan.getStudent().getId(), id -> new StudentLoans(loan.getStudent())).overdue().add(loan));
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<StudentLoans> students = new ArrayList<>(byStudent.values());
+        int reminders = 0;
+        int overdueAlerts = 0;
+        int emails = 0;
+        for (int from = 0; from < students.size(); from += chunkSize) {
+            List<StudentLoans> group = students.subList(from, Math.min(from + chunkSize, students.size()));
+            emails += tx.execute(status -> {
+                List<SimpleMailMessage> messages = new ArrayList<>(group.size());
+                List<Long> reminderIds = new ArrayList<>();
+                List<Long> overdueIds = new ArrayList<>();
+                for (StudentLoans loans : group) {
+                    loans.dueSoon().forEach(loan -> reminderIds.add(loan.getId()));
+                    loans.overdue().forEach(loan -> overdueIds.add(loan.getId()));
+                    if (hasEmail(loans.student())) {
+                        messages.add(emailService.loanDigest(loans.student().getEmail(),
+                            loans.dueSoon(), loans.overdue(), today));
+                    }
+                }
+                emailService.sendAll(messages);
+                if (!reminderIds.isEmpty()) {
+                    issueRepository.markReminderSent(reminderIds, today);
+                }
+                if (!overdueIds.isEmpty()) {
+                    issueRepository.markOverdueAlertSent(overdueIds, today);
+                }
+                return messages.size();
+            });
+            for (StudentLoans loans : group) {
+                reminders += loans.dueSoon().size();
+                overdueAlerts += loans.overdue().size();
+            }
+        }
+        return new Result(reminders, overdueAlerts, emails);
+    }
+
+    private void readInChunks(LocalDate from, Function<Position, List<Issue>> nextChunk, Consumer<Issue> action) {
+        Position after = new Position(from.minusDays(1), 0L);
+        while (true) {
+            List<Issue> loans = nextChunk.apply(after);
+            loans.forEach(action);
+            if (loans.size() < chunkSize) {
+                return;
+            }
+            Issue last = loans.get(loans.size() - 1);
+            after = new Position(last.getReturnDate(), last.getId());
+        }
+    }
+
+    private static boolean hasEmail(User student) {
+        return student.getEmail() != null && !student.getEmail().isBlank();
+    }
+
+    // reminders and overdueAlerts count loans; emails is what was queued for them
+    public record Result(int reminders, int overdueAlerts, int emails) {}
+
+    private record Position(LocalDate returnDate, Long id) {}
+
+    private record Chunk(Issue last, int size, int queued) {}
+
+    private record StudentLoans(User student, List<Issue> dueSoon, List<Issue> overdue) {
+        StudentLoans(User student) {
+            this(student, new ArrayList<>(), new ArrayList<>());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.model.BookRating;
+import com.example.demo.repository.BookRatingRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-book rating aggregates (count, sum, 1-5 star histogram) in book_ratings. FeedbackService
+// applies every create, update and delete to them as a single UPDATE in the same transaction as
+// the feedback change, so reading a book's rating never touches the feedback table.
+@Service
+public class RatingService {
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    // Books rated before the aggregates existed get their row from the feedback table, once
+    @PostConstruct
+    public void backfill() {
+        try {
+            int added = bookRatingRepository.insertMissing();
+            if (added > 0) {
+                System.out.println("Built rating aggregates for " + added + " books");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not build rating aggregates: " + e.getMessage());
+        }
+    }
+
+    // Run before the transaction that applies the first rating of a book, so that one only ever updates
+    void ensureRow(Long bookId) {
+        if (bookRatingRepository.existsById(bookId)) {
+            return;
+        }
+        try {
+            bookRatingRepository.insertEmpty(bookId);
+        } catch (DataIntegrityViolationException e) {
+            // Another request created it first
+        }
+    }
+
+    // added and removed are star values, 0 for none; must run inside the feedback change's transaction.
+    // Without a row to update the aggregate would silently drift from the feedback table, so the
+    // whole change is rolled back instead (an empty row can't be created here: for an update or
+    // delete it would miss the ratings given before).
+    void apply(Long bookId, int added, int removed) {
+        if (bookRatingRepository.applyChange(bookId, added, removed) == 0) {
+            throw new IllegalStateException("No rating aggregate for book " + bookId);
+        }
+    }
+
+    public RatingSummary summary(Long bookId) {
+        return bookRatingRepository.findById(bookId).map(RatingSummary::from)
+            .orElseGet(() -> RatingSummary.unrated(bookId));
+    }
+
+    // One query for a whole listing; books never rated map to an unrated summary
+    public Map<Long, RatingSummary> summaries(Collection<Long> bookIds) {
+        Map<Long, RatingSummary> summaries = new HashMap<>();
+        for (BookRating rating : bookRatingRepository.findAllById(bookIds)) {
+            summaries.put(rating.getBookId(), RatingSummary.from(rating));
+        }
+        for (Long bookId : bookIds) {
+            summaries.computeIfAbsent(bookId, RatingSummary::unrated);
+        }
+        return summaries;
+    }
+
+    public void forget(Long bookId) {
+        bookRatingRepository.deleteById(bookId);
+    }
+}
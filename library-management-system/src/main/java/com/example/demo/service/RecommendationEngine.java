@@ -0,0 +1,575 @@
+package com.example.demo.service;
+
+import com.example.demo.util.LongIntHashMap;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// "Students who borrowed this also borrowed", from loan history. Every (student, book) pair that
+// was issued is one cell of a sparse student x book matrix, and two books co-occur once for each
+// student who borrowed both. A book's neighbours are the top-k books by cosine similarity,
+// co / sqrt(borrowers(a) * borrowers(b)), so bestsellers don't top every list just for being popular.
+//   - The full build reads issue rows in keyset chunks, maps ids to dense ints (LongIntHashMap),
+//     packs each pair into a long, sorts and dedupes them with Arrays.parallelSort, then scores
+//     books in a fork-join pass over book ranges. It runs at startup and on rebuild-cron.
+//   - A new loan is applied after commit by a background thread: the pair is added, the book is
+//     rescored, and it moves up in the lists of the other books in the student's basket.
+//   - Students with more than max-basket distinct books are left out of the scoring; their pairs
+//     cost quadratic time and say little about any one book.
+//   - With exclude-disliked, a book the student rated 2 stars or less doesn't count as borrowed.
+//     Ratings given after the loan are picked up by the next full build.
+// Lookups never block: neighbour lists are immutable and published through a volatile snapshot.
+@Service
+public class RecommendationEngine {
+
+    private static final String ISSUES_SQL = "SELECT id, student_id, book_id FROM issue " +
+        "WHERE id > ? AND (status IS NULL OR status = 'APPROVED') ORDER BY id LIMIT ?";
+    private static final String DISLIKED_SQL = "SELECT id, user_id, book_id FROM feedback " +
+        "WHERE id > ? AND rating <= 2 ORDER BY id LIMIT ?";
+    private static final int LOAD_CHUNK_SIZE = 50_000;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 500;
+    // Books scored by one fork-join leaf
+    private static final int LEAF_SIZE = 128;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.recommendations.top-k:10}")
+    private int topK;
+
+    @Value("${app.recommendations.max-basket:500}")
+    private int maxBasket;
+
+    @Value("${app.recommendations.exclude-disliked:true}")
+    private boolean excludeDisliked;
+
+    // Written by rebuilds and the updater thread only, under graphLock
+    private final Object graphLock = new Object();
+    private Graph graph;
+    private volatile Model model = new Model(new LongIntHashMap(0), new Neighbors[0]);
+
+    private final BlockingQueue<Loan> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean running = true;
+    private Thread worker;
+
+    // After startup, so the schema exists; the first build runs on the updater thread
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = new Thread(this::updateLoop, "recommendation-updater");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Nothing is lost by interrupting: the model is rebuilt from the database on the next start
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // Up to limit books borrowed by the borrowers of bookId, most similar first
+    public List<Recommendation> recommend(long bookId, int limit) {
+        Model current = model;
+        int book = current.index().get(bookId);
+        if (book == LongIntHashMap.MISSING || book >= current.neighbors().length) {
+            return List.of();
+        }
+        Neighbors neighbors = current.neighbors()[book];
+        if (neighbors == null) {
+            return List.of();
+        }
+        int count = Math.min(Math.max(limit, 0), neighbors.bookIds.length);
+        List<Recommendation> recommendations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recommendations.add(new Recommendation(neighbors.bookIds[i], neighbors.scores[i], neighbors.coBorrowers[i]));
+        }
+        return recommendations;
+    }
+
+    // Called after the loan commits
+    public void onIssued(Long studentId, Long bookId) {
+        if (studentId == null || bookId == null) {
+            return;
+        }
+        // When full, the loan is picked up from the database by the next rebuild
+        queue.offer(new Loan(studentId, bookId));
+    }
+
+    @Scheduled(cron = "${app.recommendations.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (graphLock) {
+            // Holding the lock while reading: loans committed meanwhile wait in the queue and
+            // are applied to the new graph, where pairs it already has are ignored
+            Graph next = new Graph(LOAD_CHUNK_SIZE);
+            long[] afterId = {0L};
+            int read;
+            do {
+                read = jdbcTemplate.query(ISSUES_SQL, rs -> {
+                    int rows = 0;
+                    while (rs.next()) {
+                        afterId[0] = rs.getLong(1);
+                        next.addRow(rs.getLong(2), rs.getLong(3));
+                        rows++;
+                    }
+                    return rows;
+                }, afterId[0], LOAD_CHUNK_SIZE);
+            } while (read == LOAD_CHUNK_SIZE);
+            install(next, excludeDisliked ? disliked(next) : new long[0]);
+        }
+        Model current = model;
+        System.out.println("Recommendations built: " + current.index().size() + " books in "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Builds from the given (student, book) rows instead of the database
+    void rebuild(long[] studentIds, long[] bookIds, int rows) {
+        synchronized (graphLock) {
+            Graph next = new Graph(rows);
+            for (int i = 0; i < rows; i++) {
+                next.addRow(studentIds[i], bookIds[i]);
+            }
+            install(next, new long[0]);
+        }
+    }
+
+    // Adds the loans to the graph and updates the lists they change; runs on the updater thread.
+    // A loan of book b by student s changes b's borrower count, so b is rescored. For every other
+    // book x in s's basket only the (x, b) entry changes, and co / sqrt(borrowers(x) * borrowers(b))
+    // only rises when co and borrowers(b) both grow by one, so b is moved up in or into x's list
+    // using the co-borrow counts from b's rescoring. Lists elsewhere that hold b keep a slightly
+    // high score for it until the next full build.
+    void apply(List<Loan> loans) {
+        synchronized (graphLock) {
+            Graph current = graph;
+            if (current == null) {
+                // The first build failed; the next one reads these loans from the database
+                return;
+            }
+            int booksBefore = current.books;
+            boolean changed = false;
+            Scratch scratch = SCRATCH.get();
+            for (Loan loan : loans) {
+                int student = current.student(loan.studentId());
+                int book = current.book(loan.bookId());
+                if (!current.link(student, book)) {
+                    continue;
+                }
+                changed = true;
+                int size = current.basketSizes[student];
+                int[] basket = current.baskets[student];
+                if (size == maxBasket + 1) {
+                    // The student just left the scoring, which changes all of their books
+                    int[] books = Arrays.copyOf(basket, size);
+                    ForkJoinPool.commonPool().invoke(new ScoreTask(current, books, 0, books.length));
+                    continue;
+                }
+                int touched = count(current, book, scratch);
+                int[] coBorrowers = new int[size];
+                for (int i = 0; i < size; i++) {
+                    coBorrowers[i] = scratch.counts[basket[i]];
+                }
+                current.neighbors[book] = select(current, book, scratch, touched);
+                if (size <= maxBasket) {
+                    for (int i = 0; i < size; i++) {
+                        if (basket[i] != book) {
+                            promote(current, basket[i], book, coBorrowers[i]);
+                        }
+                    }
+                }
+            }
+            if (changed) {
+                publish(current, current.books != booksBefore);
+            }
+        }
+    }
+
+    private void install(Graph next, long[] excluded) {
+        next.index(excluded);
+        int[] all = new int[next.books];
+        Arrays.setAll(all, i -> i);
+        ForkJoinPool.commonPool().invoke(new ScoreTask(next, all, 0, all.length));
+        graph = next;
+        publish(next, true);
+    }
+
+    // Readers see a new index only as a copy, since the graph's own map keeps growing. Lists
+    // rescored in place need no copy: Neighbors is immutable, and the volatile write publishes them.
+    private void publish(Graph current, boolean booksAdded) {
+        LongIntHashMap index = booksAdded ? current.bookIndex.copy() : model.index();
+        model = new Model(index, current.neighbors);
+    }
+
+    // (student, book) pairs rated 2 stars or less, packed and sorted like the graph's rows
+    private long[] disliked(Graph next) {
+        List<Long> pairs = new ArrayList<>();
+        long[] afterId = {0L};
+        int read;
+        do {
+            read = jdbcTemplate.query(DISLIKED_SQL, rs -> {
+                int rows = 0;
+                while (rs.next()) {
+                    afterId[0] = rs.getLong(1);
+                    int student = next.studentIndex.get(rs.getLong(2));
+                    int book = next.bookIndex.get(rs.getLong(3));
+                    if (student != LongIntHashMap.MISSING && book != LongIntHashMap.MISSING) {
+                        pairs.add(pack(student, book));
+                    }
+                    rows++;
+                }
+                return rows;
+            }, afterId[0], LOAD_CHUNK_SIZE);
+        } while (read == LOAD_CHUNK_SIZE);
+        long[] sorted = pairs.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void updateLoop() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("Recommendation build failed: " + e.getMessage());
+        }
+        List<Loan> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                Loan first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Recommendation update failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Student index in the high half so sorted pairs group by student, ordered by book
+    private static long pack(int student, int book) {
+        return ((long) student << 32) | book;
+    }
+
+    // Counts, per book, the students who borrowed both it and book; returns how many books were
+    // touched (listed in scratch.touched)
+    private int count(Graph g, int book, Scratch scratch) {
+        scratch.ensure(g.books);
+        int[] counts = scratch.counts;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        int[] readers = g.readers[book];
+        for (int r = 0, n = g.readerCounts[book]; r < n; r++) {
+            int student = readers[r];
+            int size = g.basketSizes[student];
+            if (size > maxBasket) {
+                continue;
+            }
+            int[] basket = g.baskets[student];
+            for (int i = 0; i < size; i++) {
+                int other = basket[i];
+                if (other != book && counts[other]++ == 0) {
+                    touched[touchedCount++] = other;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    // Top-k of the counted books, best first; leaves the counts zeroed for the next book
+    private Neighbors select(Graph g, int book, Scratch scratch, int touchedCount) {
+        int[] counts = scratch.counts;
+        int[] touched = scratch.touched;
+        int k = Math.max(topK, 0);
+        long[] best = new long[k];
+        int[] bestCo = new int[k];
+        float[] bestScores = new float[k];
+        int found = 0;
+        double borrowers = g.readerCounts[book];
+        for (int t = 0; t < touchedCount; t++) {
+            int other = touched[t];
+            int co = counts[other];
+            counts[other] = 0;
+            float score = (float) (co / Math.sqrt(borrowers * g.readerCounts[other]));
+            long id = g.bookIds[other];
+            if (k == 0 || (found == k && !ranksAbove(score, co, id, bestScores[k - 1], bestCo[k - 1], best[k - 1]))) {
+                continue;
+            }
+            int at = found < k ? found++ : k - 1;
+            while (at > 0 && ranksAbove(score, co, id, bestScores[at - 1], bestCo[at - 1], best[at - 1])) {
+                best[at] = best[at - 1];
+                bestCo[at] = bestCo[at - 1];
+                bestScores[at] = bestScores[at - 1];
+                at--;
+            }
+            best[at] = id;
+            bestCo[at] = co;
+            bestScores[at] = score;
+        }
+        if (found == 0) {
+            return null;
+        }
+        return new Neighbors(Arrays.copyOf(best, found), Arrays.copyOf(bestScores, found), Arrays.copyOf(bestCo, found));
+    }
+
+    // Re-ranks book in other's list after its score went up to co / sqrt(borrowers(other) * borrowers(book))
+    private void promote(Graph g, int other, int book, int co) {
+        int k = Math.max(topK, 0);
+        if (k == 0) {
+            return;
+        }
+        long id = g.bookIds[book];
+        float score = (float) (co / Math.sqrt((double) g.readerCounts[other] * g.readerCounts[book]));
+        Neighbors old = g.neighbors[other];
+        int n = old == null ? 0 : old.bookIds.length;
+        long[] ids = new long[Math.min(k, n + 1)];
+        float[] scores = new float[ids.length];
+        int[] coBorrowers = new int[ids.length];
+        int size = 0;
+        boolean placed = false;
+        for (int i = 0; i < n && size < ids.length; i++) {
+            if (old.bookIds[i] == id) {
+                continue;
+            }
+            if (!placed && ranksAbove(score, co, id, old.scores[i], old.coBorrowers[i], old.bookIds[i])) {
+                ids[size] = id;
+                scores[size] = score;
+                coBorrowers[size++] = co;
+                placed = true;
+                if (size == ids.length) {
+                    break;
+                }
+            }
+            ids[size] = old.bookIds[i];
+            scores[size] = old.scores[i];
+            coBorrowers[size++] = old.coBorrowers[i];
+        }
+        if (!placed && size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            coBorrowers[size++] = co;
+        }
+        g.neighbors[other] = new Neighbors(Arrays.copyOf(ids, size), Arrays.copyOf(scores, size),
+            Arrays.copyOf(coBorrowers, size));
+    }
+
+    // Higher score first, then more co-borrowers, then the lower book id
+    private static boolean ranksAbove(float score, int co, long book, float otherScore, int otherCo, long otherBook) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        if (co != otherCo) {
+            return co > otherCo;
+        }
+        return book < otherBook;
+    }
+
+    public record Recommendation(long bookId, double score, int coBorrowers) {}
+
+    record Loan(long studentId, long bookId) {}
+
+    private record Model(LongIntHashMap index, Neighbors[] neighbors) {}
+
+    private static final class Neighbors {
+        final long[] bookIds;
+        final float[] scores;
+        final int[] coBorrowers;
+
+        Neighbors(long[] bookIds, float[] scores, int[] coBorrowers) {
+            this.bookIds = bookIds;
+            this.scores = scores;
+            this.coBorrowers = coBorrowers;
+        }
+    }
+
+    // Per-thread co-borrow counters, one slot per book, reused across books and builds
+    private static final class Scratch {
+        int[] counts = new int[0];
+        int[] touched = new int[0];
+
+        void ensure(int books) {
+            if (counts.length < books) {
+                counts = new int[books + books / 2];
+                touched = new int[counts.length];
+            }
+        }
+    }
+
+    // Scores the given books, splitting the range until a leaf is small enough
+    private final class ScoreTask extends RecursiveAction {
+        private final Graph g;
+        private final int[] books;
+        private final int from;
+        private final int to;
+
+        ScoreTask(Graph g, int[] books, int from, int to) {
+            this.g = g;
+            this.books = books;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                Scratch scratch = SCRATCH.get();
+                for (int i = from; i < to; i++) {
+                    g.neighbors[books[i]] = select(g, books[i], scratch, count(g, books[i], scratch));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreTask(g, books, from, mid), new ScoreTask(g, books, mid, to));
+        }
+    }
+
+    // Students and books as dense indexes, with each student's basket and each book's borrowers.
+    // Rows are collected packed, then index() sorts, dedupes and turns them into adjacency arrays.
+    private static final class Graph {
+        final LongIntHashMap studentIndex = new LongIntHashMap(1024);
+        final LongIntHashMap bookIndex = new LongIntHashMap(1024);
+        long[] bookIds = new long[1024];
+        int students;
+        int books;
+        int[][] baskets;
+        int[] basketSizes;
+        int[][] readers;
+        int[] readerCounts;
+        Neighbors[] neighbors;
+        private long[] rows;
+        private int rowCount;
+
+        Graph(int expectedRows) {
+            rows = new long[Math.max(expectedRows, 1024)];
+        }
+
+        void addRow(long studentId, long bookId) {
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length + (rows.length >> 1));
+            }
+            rows[rowCount++] = pack(student(studentId), book(bookId));
+        }
+
+        void index(long[] excluded) {
+            Arrays.parallelSort(rows, 0, rowCount);
+            int distinct = 0;
+            for (int i = 0; i < rowCount; i++) {
+                long pair = rows[i];
+                if ((distinct > 0 && rows[distinct - 1] == pair) || Arrays.binarySearch(excluded, pair) >= 0) {
+                    continue;
+                }
+                rows[distinct++] = pair;
+            }
+            int[] basketCounts = new int[students];
+            int[] borrowerCounts = new int[books];
+            for (int i = 0; i < distinct; i++) {
+                basketCounts[(int) (rows[i] >>> 32)]++;
+                borrowerCounts[(int) rows[i]]++;
+            }
+            baskets = new int[students][];
+            for (int s = 0; s < students; s++) {
+                baskets[s] = new int[basketCounts[s]];
+            }
+            readers = new int[books][];
+            for (int b = 0; b < books; b++) {
+                readers[b] = new int[borrowerCounts[b]];
+            }
+            basketSizes = new int[students];
+            readerCounts = new int[books];
+            for (int i = 0; i < distinct; i++) {
+                int student = (int) (rows[i] >>> 32);
+                int book = (int) rows[i];
+                baskets[student][basketSizes[student]++] = book;
+                readers[book][readerCounts[book]++] = student;
+            }
+            neighbors = new Neighbors[books];
+            rows = null;
+        }
+
+        int student(long studentId) {
+            int existing = studentIndex.putIfAbsent(studentId, students);
+            if (existing != LongIntHashMap.MISSING) {
+                return existing;
+            }
+            if (baskets != null) {
+                if (students == baskets.length) {
+                    int capacity = students + (students >> 1) + 16;
+                    baskets = Arrays.copyOf(baskets, capacity);
+                    basketSizes = Arrays.copyOf(basketSizes, capacity);
+                }
+                baskets[students] = new int[4];
+            }
+            return students++;
+        }
+
+        int book(long bookId) {
+            int existing = bookIndex.putIfAbsent(bookId, books);
+            if (existing != LongIntHashMap.MISSING) {
+                return existing;
+            }
+            if (books == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, books + (books >> 1) + 16);
+            }
+            bookIds[books] = bookId;
+            if (readers != null) {
+                if (books == readers.length) {
+                    int capacity = books + (books >> 1) + 16;
+                    readers = Arrays.copyOf(readers, capacity);
+                    readerCounts = Arrays.copyOf(readerCounts, capacity);
+                    neighbors = Arrays.copyOf(neighbors, capacity);
+                }
+                readers[books] = new int[4];
+            }
+            return books++;
+        }
+
+        // Adds the pair after index(); false if the student already borrowed the book
+        boolean link(int student, int book) {
+            int size = basketSizes[student];
+            int[] basket = baskets[student];
+            for (int i = 0; i < size; i++) {
+                if (basket[i] == book) {
+                    return false;
+                }
+            }
+            if (size == basket.length) {
+                baskets[student] = basket = Arrays.copyOf(basket, size + (size >> 1) + 4);
+            }
+            basket[size] = book;
+            basketSizes[student] = size + 1;
+            int count = readerCounts[book];
+            if (count == readers[book].length) {
+                readers[book] = Arrays.copyOf(readers[book], count + (count >> 1) + 4);
+            }
+            readers[book][count] = student;
+            readerCounts[book] = count + 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// In-memory admission control for book requests. For every book it tracks the copies on the
+// shelf, the pending requests already holding one of them, and which students hold a pending
+// request or an unreturned loan. A request is admitted only while pending requests are fewer than
+// available copies, so a burst on one title is decided without touching the database.
+// Books are guarded by a fixed set of striped locks; the shelf count is loaded lazily per book.
+// The database stays authoritative: approvals still take copies with a conditional UPDATE.
+@Service
+public class ReservationLedger {
+
+    public enum Admission { ADMITTED, DUPLICATE, UNAVAILABLE, NOT_FOUND }
+
+    private static final int STRIPES = 64;
+    private static final int UNKNOWN = -1;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    // Sum of reserved over all books, i.e. the number of pending requests
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public ReservationLedger() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Built before the web server starts accepting requests, so admission is never decided on a partial ledger
+    @PostConstruct
+    public void rebuild() {
+        try {
+            issueRepository.backfillActiveHolds();
+        } catch (RuntimeException e) {
+            System.err.println("Could not backfill active holds on issues: " + e.getMessage());
+        }
+        Map<Long, Slot> rebuilt = new ConcurrentHashMap<>();
+        int reserved = 0;
+        for (IssueRepository.ActiveHold hold : issueRepository.findActiveHolds()) {
+            Slot slot = rebuilt.computeIfAbsent(hold.getBookId(), id -> new Slot());
+            slot.holders.add(hold.getStudentId());
+            if ("PENDING".equals(hold.getStatus())) {
+                slot.reserved++;
+                reserved++;
+            }
+        }
+        slots.clear();
+        slots.putAll(rebuilt);
+        pending.set(reserved);
+    }
+
+    public Admission tryReserve(Long bookId, Long studentId) {
+        Slot slot = loadedSlot(bookId);
+        if (slot == null) {
+            return Admission.NOT_FOUND;
+        }
+        ReentrantLock lock = lockFor(bookId);
+        lock.lock();
+        try {
+            if (slot.holders.contains(studentId)) {
+                return Admission.DUPLICATE;
+            }
+            if (slot.reserved >= slot.available) {
+                return Admission.UNAVAILABLE;
+            }
+            slot.reserved++;
+            slot.holders.add(studentId);
+            pending.incrementAndGet();
+            return Admission.ADMITTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A pending request was approved: its reservation becomes a loan of a shelf copy
+    public void onApproved(Long bookId, Long studentId) {
+        update(bookId, slot -> {
+            slot.reserved = Math.max(0, slot.reserved - 1);
+            if (slot.available > 0) {
+                slot.available--;
+            }
+            slot.holders.add(studentId);
+        });
+    }
+
+    // A pending request was rejected or could not be stored
+    public void release(Long bookId, Long studentId) {
+        update(bookId, slot -> {
+            slot.reserved = Math.max(0, slot.reserved - 1);
+            slot.holders.remove(studentId);
+        });
+    }
+
+    // The database refused a request as a duplicate: drop its reservation but keep the student's existing hold
+    public void releaseDuplicate(Long bookId) {
+        update(bookId, slot -> slot.reserved = Math.max(0, slot.reserved - 1));
+    }
+
+    // An admin issued a copy directly, without a request
+    public void onIssued(Long bookId, Long studentId) {
+        update(bookId, slot -> {
+            if (slot.available > 0) {
+                slot.available--;
+            }
+            slot.holders.add(studentId);
+        });
+    }
+
+    public void onReturned(Long bookId, Long studentId) {
+        update(bookId, slot -> {
+            if (slot.available != UNKNOWN) {
+                slot.available++;
+            }
+            slot.holders.remove(studentId);
+        });
+    }
+
+    // Shelf count changed outside circulation (quantity edit, failed approval); reload it on next use
+    public void invalidate(Long bookId) {
+        update(bookId, slot -> slot.available = UNKNOWN);
+    }
+
+    public void forget(Long bookId) {
+        Slot slot = slots.remove(bookId);
+        if (slot != null) {
+            pending.addAndGet(-slot.reserved);
+        }
+    }
+
+    public int pendingRequests() {
+        return pending.get();
+    }
+
+    // Null when there is no such book
+    private Slot loadedSlot(Long bookId) {
+        Slot slot = slots.computeIfAbsent(bookId, id -> new Slot());
+        while (slot.available == UNKNOWN) {
+            // Loaded outside the stripe lock so a cold book doesn't stall its neighbours. A change
+            // landing meanwhile is not reflected in the count read, so it bumps the version and the
+            // count is read again rather than installed stale.
+            int version = slot.version;
+            Integer available = bookRepository.findAvailableById(bookId);
+            if (available == null) {
+                // Not kept, so probing unknown ids doesn't grow the ledger
+                slots.remove(bookId, slot);
+                return null;
+            }
+            ReentrantLock lock = lockFor(bookId);
+            lock.lock();
+            try {
+                if (slot.available == UNKNOWN && slot.version == version) {
+                    slot.available = available;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return slot;
+    }
+
+    private void update(Long bookId, Consumer<Slot> change) {
+        Slot slot = slots.computeIfAbsent(bookId, id -> new Slot());
+        ReentrantLock lock = lockFor(bookId);
+        lock.lock();
+        try {
+            int reserved = slot.reserved;
+            change.accept(slot);
+            slot.version++;
+            pending.addAndGet(slot.reserved - reserved);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long bookId) {
+        long h = bookId * 0x9E3779B97F4A7C15L;
+        return locks[(int) (h >>> 58)];
+    }
+
+    private static final class Slot {
+        // Written under the book's stripe lock; volatile so the lazy load can check it without one
+        volatile int available = UNKNOWN;
+        // Bumped by every change, so a count loaded without the lock can tell it missed one
+        volatile int version;
+        int reserved;
+        final Set<Long> holders = new HashSet<>(4);
+    }
+}
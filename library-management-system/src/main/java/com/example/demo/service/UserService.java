@@ -4,6 +4,7 @@ import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -13,6 +14,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private EmailService emailService;
+
     public User save(User user) { return userRepo.save(user); }
     public User findById(Long id) { return userRepo.findById(id).orElse(null); }
     public User findByUsername(String username) { return userRepo.findByUsername(username); }
@@ -35,4 +39,15 @@ public class UserService {
     public List<User> findAll() { return userRepo.findAll(); }
     public List<User> findPendingUsers() { return userRepo.findByStatus("PENDING"); }
     public void deleteById(Long id) { userRepo.deleteById(id); }
+
+    // The approval email is queued in the same transaction as the status change
+    @Transactional
+    public User approve(User user) {
+        user.setStatus("APPROVED");
+        User saved = userRepo.save(user);
+        if (saved.getEmail() != null && !saved.getEmail().isEmpty()) {
+            emailService.sendAccountApprovalNotification(saved.getEmail(), saved.getUsername());
+        }
+        return saved;
+    }
 }
@@ -0,0 +1,150 @@
+package com.example.demo.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Burkhard-Keller tree over words under Levenshtein distance. A lookup only visits children whose
+// edge distance lies within [d - k, d + k] of the current node, so it touches a small part of
+// the vocabulary for k <= 2. Words are reference counted; removed words stay in the tree as
+// dead nodes until they outnumber the live ones, at which point the tree is rebuilt.
+// Not thread-safe: callers guard it with their own lock.
+public class BkTree {
+
+    private static final int MIN_DEAD_FOR_REBUILD = 1024;
+
+    private Node root;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private int live = 0;
+    private int dead = 0;
+
+    public void add(String word) {
+        Node node = nodes.get(word);
+        if (node != null) {
+            if (node.refs++ == 0) {
+                live++;
+                dead--;
+            }
+            return;
+        }
+        node = new Node(word);
+        nodes.put(word, node);
+        live++;
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node current = root;
+        while (true) {
+            int distance = distance(current.word, word, Integer.MAX_VALUE);
+            Node child = current.children.get(distance);
+            if (child == null) {
+                current.children.put(distance, node);
+                return;
+            }
+            current = child;
+        }
+    }
+
+    public void remove(String word) {
+        Node node = nodes.get(word);
+        if (node == null || node.refs == 0) {
+            return;
+        }
+        if (--node.refs == 0) {
+            live--;
+            dead++;
+            if (dead >= MIN_DEAD_FOR_REBUILD && dead > live) {
+                rebuild();
+            }
+        }
+    }
+
+    public int size() {
+        return live;
+    }
+
+    // All live words within maxDistance of the query, with their distance
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(node.word, query, Integer.MAX_VALUE);
+            if (distance <= maxDistance && node.refs > 0) {
+                matches.add(new Match(node.word, distance));
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                int edge = child.getKey();
+                if (edge >= distance - maxDistance && edge <= distance + maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void rebuild() {
+        List<Node> survivors = new ArrayList<>(live);
+        for (Node node : nodes.values()) {
+            if (node.refs > 0) {
+                survivors.add(node);
+            }
+        }
+        root = null;
+        nodes.clear();
+        live = 0;
+        dead = 0;
+        for (Node node : survivors) {
+            add(node.word);
+            nodes.get(node.word).refs = node.refs;
+        }
+    }
+
+    // Levenshtein distance; gives up and returns limit + 1 once every alignment exceeds limit
+    public static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    public record Match(String word, int distance) {}
+
+    private static final class Node {
+        final String word;
+        final Map<Integer, Node> children = new HashMap<>(4);
+        int refs = 1;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
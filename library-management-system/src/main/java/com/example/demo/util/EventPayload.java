@@ -0,0 +1,61 @@
+package com.example.demo.util;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+// Small key/value payload of an activity entry, stored as "key=value&key=value" with
+// URL-encoded values. Only for the few values an entry cannot join to later, such as the
+// title of a book that is being deleted.
+public final class EventPayload {
+
+    public static final int MAX_LENGTH = 255;
+
+    private EventPayload() {}
+
+    // Pairs of key, value; null values are left out
+    public static String of(String... keysAndValues) {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            if (keysAndValues[i + 1] == null) {
+                continue;
+            }
+            if (payload.length() > 0) {
+                payload.append('&');
+            }
+            payload.append(keysAndValues[i]).append('=')
+                .append(URLEncoder.encode(keysAndValues[i + 1], StandardCharsets.UTF_8));
+        }
+        if (payload.length() == 0) {
+            return null;
+        }
+        // Titles are bounded by the column; a truncated escape would not decode, so cut at a pair boundary
+        while (payload.length() > MAX_LENGTH) {
+            int cut = payload.lastIndexOf("&");
+            if (cut < 0) {
+                return null;
+            }
+            payload.setLength(cut);
+        }
+        return payload.toString();
+    }
+
+    public static String get(String payload, String key) {
+        if (payload == null) {
+            return null;
+        }
+        int from = 0;
+        while (from < payload.length()) {
+            int end = payload.indexOf('&', from);
+            if (end < 0) {
+                end = payload.length();
+            }
+            int eq = payload.indexOf('=', from);
+            if (eq > from && eq < end && payload.regionMatches(from, key, 0, key.length()) && eq - from == key.length()) {
+                return URLDecoder.decode(payload.substring(eq + 1, end), StandardCharsets.UTF_8);
+            }
+            from = end + 1;
+        }
+        return null;
+    }
+}
@@ -16,12 +16,18 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    // Scope of the short-lived tokens that open the live feed; they are good for nothing else
+    public static final String LIVE_FEED_SCOPE = "live-feed";
+
     @Value("${jwt.secret:YourSuperSecretKeyThatShouldBeAtLeast32CharactersLongForHS256}")
     private String secret;
 
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
 
+    @Value("${app.live-feed.token-ttl-ms:60000}")
+    private Long liveFeedTokenTtl;
+
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
@@ -39,6 +45,11 @@ public class JwtUtil {
         return (String) claims.get("role");
     }
 
+    // Null for ordinary login tokens
+    public String extractScope(String token) {
+        return (String) extractAllClaims(token).get("scope");
+    }
+
     public Long extractUserId(String token) {
         Claims claims = extractAllClaims(token);
         Object userIdObj = claims.get("userId");
@@ -69,15 +80,25 @@ public class JwtUtil {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
         claims.put("userId", userId);
-        return createToken(claims, username);
+        return createToken(claims, username, expiration);
+    }
+
+    // EventSource cannot set headers, so the live feed takes its token in the URL, where it may end
+    // up in logs: it expires quickly and only opens the stream
+    public String generateLiveFeedToken(String username, String role, Long userId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        claims.put("userId", userId);
+        claims.put("scope", LIVE_FEED_SCOPE);
+        return createToken(claims, username, liveFeedTokenTtl);
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, long ttlMs) {
         return Jwts.builder()
                 .claims(claims)
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .expiration(new Date(System.currentTimeMillis() + ttlMs))
                 .signWith(getSigningKey())
                 .compact();
     }
@@ -0,0 +1,81 @@
+package com.example.demo.util;
+
+import com.example.demo.dto.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Encodes keyset positions as opaque page tokens. The scope (e.g. "title:ASC") is stored
+// in the token so a token issued for one sort order cannot be replayed against another.
+public final class PageTokens {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private PageTokens() {}
+
+    public static ScrollPosition toPosition(String token, String scope, Map<String, Class<?>> keyTypes) {
+        if (token == null || token.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        return ScrollPosition.forward(decode(token, scope, keyTypes));
+    }
+
+    public static <T, R> CursorPage<R> toPage(Window<T> window, String scope, Function<T, R> mapper) {
+        List<R> items = window.getContent().stream().map(mapper).toList();
+        String nextToken = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextToken = encode(scope, last.getKeys());
+        }
+        return new CursorPage<>(items, nextToken, window.hasNext());
+    }
+
+    public static String encode(String scope, Map<String, ?> keys) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("s", scope);
+        payload.put("k", keys);
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(payload);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to encode page token", e);
+        }
+    }
+
+    public static Map<String, Object> decode(String token, String scope, Map<String, Class<?>> keyTypes) {
+        Map<?, ?> payload;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token);
+            payload = MAPPER.readValue(json, Map.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+
+        if (!scope.equals(payload.get("s")) || !(payload.get("k") instanceof Map<?, ?> rawKeys)) {
+            throw new IllegalArgumentException("Page token does not match the requested sort or filter");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, Class<?>> keyType : keyTypes.entrySet()) {
+            Object value = rawKeys.get(keyType.getKey());
+            if (value == null) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            keys.put(keyType.getKey(), MAPPER.convertValue(value, keyType.getValue()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ActivityLogView;
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.model.ActivityLog;
+import com.example.demo.model.Book;
+import com.example.demo.model.User;
+import com.example.demo.repository.ActivityLogRepository;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.LiveEventBus;
+import com.example.demo.service.ReservationLedger;
+import com.example.demo.util.JwtUtil;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ActivityLogRestControllerTest {
+
+    @Autowired
+    private ActivityLogRestController controller;
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LiveEventBus liveEventBus;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void theStreamSubscribesBeforeReadingThePendingCount() throws Exception {
+        ReservationLedger ledger = (ReservationLedger) ReflectionTestUtils.getField(controller, "reservationLedger");
+        AtomicInteger subscribersAtSnapshot = new AtomicInteger(-1);
+        ReflectionTestUtils.setField(controller, "reservationLedger", new ReservationLedger() {
+            @Override
+            public int pendingRequests() {
+                subscribersAtSnapshot.set(liveEventBus.subscriberCount());
+                return 0;
+            }
+        });
+        int before = liveEventBus.subscriberCount();
+        SseEmitter emitter;
+        try {
+            emitter = asAdmin(() -> controller.stream());
+        } finally {
+            ReflectionTestUtils.setField(controller, "reservationLedger", ledger);
+        }
+        assertEquals(before + 1, subscribersAtSnapshot.get());
+
+        // A completed emitter refuses the next event, which drops the subscriber
+        emitter.complete();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (liveEventBus.subscriberCount() > before && System.currentTimeMillis() < deadline) {
+            liveEventBus.publish("pending", 0);
+            Thread.sleep(20);
+        }
+        assertEquals(before, liveEventBus.subscriberCount());
+    }
+
+    @Test
+    void issuesLiveFeedTokens() throws Exception {
+        String token = asAdmin(() -> controller.streamToken()).getBody().getData();
+        assertEquals("admin", jwtUtil.extractUsername(token));
+        assertEquals(JwtUtil.LIVE_FEED_SCOPE, jwtUtil.extractScope(token));
+        assertEquals("ADMIN", jwtUtil.extractRole(token));
+    }
+
+    // Inside one persistence context, as with open-session-in-view, the served entries stay managed
+    @Test
+    @Transactional
+    void rendersDescriptionsWithoutWritingThemBack() throws Exception {
+        Book book = new Book();
+        book.setTitle("Rendered Title");
+        book.setAuthor("Rendered Author");
+        book.setQuantity(1);
+        book.setAvailable(1);
+        bookRepository.save(book);
+        User student = new User();
+        student.setUsername("rendered-student");
+        student.setRollNumber("rendered-student");
+        student.setPassword("secret");
+        student.setRole("STUDENT");
+        student.setStatus("APPROVED");
+        userRepository.save(student);
+        ActivityLog log = activityLogRepository.save(new ActivityLog("BOOK_ISSUED", student, book, null, null));
+
+        ApiResponse<CursorPage<ActivityLogView>> response = asAdmin(() ->
+                controller.getAllActivityLogs(null, null, book.getId(), null, null, null, 10, false)).getBody();
+        ActivityLogView view = response.getData().getItems().get(0);
+        assertEquals(log.getId(), view.getId());
+        assertEquals("Book 'Rendered Title' issued to student 'rendered-student'", view.getDescription());
+        assertEquals("rendered-student", view.getUsername());
+        assertEquals(book.getId(), view.getBookId());
+
+        entityManager.flush();
+        assertNull(log.getDescription());
+        assertNull(jdbcTemplate.queryForObject("SELECT description FROM activity_logs WHERE id = ?", String.class,
+                log.getId()));
+    }
+
+    private static <T> T asAdmin(Callable<T> call) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("admin", null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        try {
+            return call.call();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.SearchPage;
+import com.example.demo.model.Book;
+import com.example.demo.service.BookSearchIndex;
+import com.example.demo.service.BookService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookRestControllerTest {
+
+    @Autowired
+    private BookRestController controller;
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void rejectsASearchWithoutCriteria() {
+        ApiResponse<SearchPage<Book>> response = search(" ", null, "");
+        assertFalse(response.isSuccess());
+        assertNull(response.getData());
+    }
+
+    @Test
+    void searchesTheIndexOnceItIsReady() {
+        Book quartz = bookService.save(book("Quartzite Ridge", "Ilse Vantongeren"));
+        bookService.save(book("Quartzite Basics", "Ilse Vantongeren"));
+
+        ApiResponse<SearchPage<Book>> response = search("quartzite", "ridge", null);
+        assertTrue(response.isSuccess());
+        assertEquals(List.of(quartz.getId()), ids(response.getData()));
+        assertEquals(1, response.getData().getTotal());
+    }
+
+    @Test
+    void scansTheCatalogWhileTheIndexIsBuilding() {
+        Book first = bookService.save(book("Obsidian Shore", "Piet Halvorsen"));
+        Book second = bookService.save(book("Coast Notes", "Piet Halvorsen"));
+
+        BookSearchIndex ready = (BookSearchIndex) ReflectionTestUtils.getField(controller, "bookSearchIndex");
+        ReflectionTestUtils.setField(controller, "bookSearchIndex", new BookSearchIndex());
+        try {
+            ApiResponse<SearchPage<Book>> byQuery = search("OBSIDIAN", null, null);
+            assertTrue(byQuery.isSuccess());
+            assertEquals(List.of(first.getId()), ids(byQuery.getData()));
+
+            ApiResponse<SearchPage<Book>> byAuthor = controller.searchBooks(null, null, "halvorsen", null,
+                    null, 2, 0, 1).getBody();
+            assertEquals(2, byAuthor.getData().getTotal());
+            assertEquals(1, byAuthor.getData().getItems().size());
+            assertTrue(byAuthor.getData().isHasMore());
+            assertTrue(List.of(first.getId(), second.getId()).containsAll(ids(byAuthor.getData())));
+        } finally {
+            ReflectionTestUtils.setField(controller, "bookSearchIndex", ready);
+        }
+    }
+
+    private ApiResponse<SearchPage<Book>> search(String q, String title, String author) {
+        return controller.searchBooks(q, title, author, null, null, 2, 0, 50).getBody();
+    }
+
+    private static List<Long> ids(SearchPage<Book> page) {
+        return page.getItems().stream().map(Book::getId).toList();
+    }
+
+    private static Book book(String title, String author) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setQuantity(1);
+        book.setAvailable(1);
+        return book;
+    }
+}
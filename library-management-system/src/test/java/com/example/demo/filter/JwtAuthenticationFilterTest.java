@@ -0,0 +1,85 @@
+package com.example.demo.filter;
+
+import com.example.demo.util.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", "TestSecretKeyThatIsAtLeast32CharactersLongForHS256");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "liveFeedTokenTtl", 60_000L);
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+    }
+
+    @Test
+    void loginTokensAreReadFromTheHeaderOnly() throws Exception {
+        String token = jwtUtil.generateToken("admin", "ADMIN", 7L);
+
+        Authentication viaHeader = authenticate(withHeader("/api/activity-logs", token));
+        assertEquals("admin", viaHeader.getName());
+        assertEquals(7L, ((JwtAuthenticationDetails) viaHeader.getDetails()).getUserId());
+        assertEquals("admin", authenticate(withHeader(JwtAuthenticationFilter.LIVE_FEED_PATH, token)).getName());
+        // Not in the URL, where it would outlive the request in logs
+        assertNull(authenticate(withQuery(JwtAuthenticationFilter.LIVE_FEED_PATH, token)));
+    }
+
+    @Test
+    void liveFeedTokensOnlyOpenTheStream() throws Exception {
+        String token = jwtUtil.generateLiveFeedToken("admin", "ADMIN", 7L);
+
+        Authentication stream = authenticate(withQuery(JwtAuthenticationFilter.LIVE_FEED_PATH, token));
+        assertEquals("admin", stream.getName());
+        assertEquals("ROLE_ADMIN", stream.getAuthorities().iterator().next().getAuthority());
+        assertNull(authenticate(withQuery("/api/activity-logs", token)));
+        assertNull(authenticate(withHeader("/api/activity-logs", token)));
+        assertNull(authenticate(withHeader(JwtAuthenticationFilter.LIVE_FEED_PATH, token)));
+    }
+
+    @Test
+    void expiredLiveFeedTokensAreRefused() throws Exception {
+        ReflectionTestUtils.setField(jwtUtil, "liveFeedTokenTtl", -1_000L);
+        String token = jwtUtil.generateLiveFeedToken("admin", "ADMIN", 7L);
+        assertNull(authenticate(withQuery(JwtAuthenticationFilter.LIVE_FEED_PATH, token)));
+    }
+
+    // The authentication the rest of the chain sees
+    private Authentication authenticate(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        FilterChain chain = (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication());
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return seen.get();
+    }
+
+    private static MockHttpServletRequest withHeader(String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private static MockHttpServletRequest withQuery(String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setParameter("access_token", token);
+        return request;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActivityLogArchiveTest {
+
+    private static final LocalDateTime JAN = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    private ActivityLogArchive archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = new ActivityLogArchive();
+        ReflectionTestUtils.setField(archive, "archiveDir", dir.toString());
+        archive.init();
+    }
+
+    @Test
+    void pagesNewestFirstAcrossMonthsAndRuns() {
+        // Three runs; the second spans January and February
+        archive.append(entries(1, 20, JAN));
+        archive.append(entries(21, 40, JAN.plusDays(20)));
+        archive.append(entries(41, 50, JAN.plusDays(60)));
+
+        assertEquals(range(50, 1), readAll(e -> true, 7));
+        assertEquals(range(50, 1).stream().filter(id -> id % 3 == 0).toList(), readAll(e -> e.id() % 3 == 0, 4));
+
+        // Only January 25 to February 5
+        List<Long> window = ids(archive.read(null, null, JAN.plusDays(24), JAN.plusDays(35), e -> true, 100));
+        assertEquals(range(36, 25), window);
+    }
+
+    @Test
+    void aPageOnlyDecompressesTheRunsItNeeds() throws IOException {
+        archive.append(entries(1, 20, JAN));
+        archive.append(entries(21, 40, JAN.plusDays(20)));
+        // Wreck the first run's gzip header; the newest page must not touch it
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("activity-2024-01.ndjson.gz").toFile(), "rw")) {
+            file.write(new byte[16]);
+        }
+        assertEquals(range(40, 31), ids(archive.read(null, null, null, null, e -> true, 10)));
+        assertEquals(range(30, 21), ids(archive.read(JAN.plusDays(30), 31L, null, null, e -> true, 10)));
+    }
+
+    @Test
+    void theCheckpointSkipsABatchArchivedByAnInterruptedRun() throws IOException {
+        archive.append(entries(1, 10, JAN));
+        // The run stopped before deleting the rows, so the next one finds them again
+        archive.append(entries(1, 15, JAN));
+
+        assertEquals(range(15, 1), readAll(e -> true, 4));
+        assertEquals(2, indexLines("2024-01").size());
+    }
+
+    @Test
+    void aRunIndexedButNotCheckpointedIsReadOnce() throws IOException {
+        archive.append(entries(1, 10, JAN));
+        byte[] checkpoint = Files.readAllBytes(dir.resolve("checkpoint"));
+        archive.append(entries(11, 20, JAN.plusDays(10)));
+        // Crash after indexing the second run, before its checkpoint replaced the first one's
+        Files.write(dir.resolve("checkpoint"), checkpoint);
+        archive.append(entries(11, 20, JAN.plusDays(10)));
+
+        assertEquals(3, indexLines("2024-01").size());
+        assertEquals(range(20, 1), readAll(e -> true, 3));
+    }
+
+    @Test
+    void aRunWrittenButNotIndexedIsNeverRead() throws IOException {
+        archive.append(entries(1, 10, JAN));
+        Path index = dir.resolve("activity-2024-01.idx");
+        byte[] indexed = Files.readAllBytes(index);
+        byte[] checkpoint = Files.readAllBytes(dir.resolve("checkpoint"));
+        archive.append(entries(11, 20, JAN.plusDays(10)));
+        // Crash halfway through writing the second run's index line
+        Files.write(index, indexed);
+        Files.write(index, "{\"offset\":4".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.write(dir.resolve("checkpoint"), checkpoint);
+
+        assertEquals(range(10, 1), readAll(e -> true, 100));
+        archive.append(entries(11, 20, JAN.plusDays(10)));
+        assertEquals(range(20, 1), readAll(e -> true, 6));
+        assertEquals(2, indexLines("2024-01").size());
+    }
+
+    @Test
+    void readsAndExtendsAMonthWrittenBeforeTheIndex() throws IOException {
+        archive.append(entries(1, 10, JAN));
+        Files.delete(dir.resolve("activity-2024-01.idx"));
+        assertEquals(range(10, 1), readAll(e -> true, 4));
+
+        archive.append(entries(11, 20, JAN.plusDays(10)));
+        assertEquals(2, indexLines("2024-01").size());
+        assertEquals(range(20, 1), readAll(e -> true, 4));
+    }
+
+    // Follows the keyset cursor until the archive is exhausted
+    private List<Long> readAll(Predicate<ActivityLogArchive.Entry> filter, int limit) {
+        List<Long> ids = new ArrayList<>();
+        LocalDateTime beforeCreatedAt = null;
+        Long beforeId = null;
+        while (true) {
+            List<ActivityLogArchive.Entry> page = archive.read(beforeCreatedAt, beforeId, null, null, filter, limit);
+            if (page.isEmpty()) {
+                return ids;
+            }
+            ids.addAll(ids(page));
+            ActivityLogArchive.Entry last = page.get(page.size() - 1);
+            beforeCreatedAt = last.createdAt();
+            beforeId = last.id();
+        }
+    }
+
+    private List<String> indexLines(String month) throws IOException {
+        return Files.readAllLines(dir.resolve("activity-" + month + ".idx"));
+    }
+
+    // One entry a day, ids from..to
+    private static List<ActivityLogArchive.Entry> entries(long from, long to, LocalDateTime first) {
+        List<ActivityLogArchive.Entry> entries = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            entries.add(new ActivityLogArchive.Entry(id, "BOOK_ISSUED", null, 1L, id % 5, null, null,
+                    first.plusDays(id - from)));
+        }
+        return entries;
+    }
+
+    private static List<Long> ids(List<ActivityLogArchive.Entry> entries) {
+        return entries.stream().map(ActivityLogArchive.Entry::id).toList();
+    }
+
+    private static List<Long> range(long from, long downTo) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; id >= downTo; id--) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.model.ActivityLog;
+import com.example.demo.model.Book;
+import com.example.demo.repository.ActivityLogRepository;
+import com.example.demo.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ActivityLogServiceTest {
+
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    @Autowired
+    private ActivityLogRetentionJob activityLogRetentionJob;
+
+    @Autowired
+    private ActivityLogArchive activityLogArchive;
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    void pagesMergeTheTableAndTheArchiveNewestFirst() {
+        Path root = (Path) ReflectionTestUtils.getField(activityLogArchive, "root");
+        ReflectionTestUtils.setField(activityLogArchive, "root", archiveDir);
+        try {
+            Book book = new Book();
+            book.setTitle("Merged Log Title");
+            book.setAuthor("Merged Log Author");
+            book.setQuantity(1);
+            book.setAvailable(1);
+            bookRepository.save(book);
+
+            LocalDateTime old = LocalDateTime.of(2001, 1, 1, 12, 0);
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                // Five long-expired entries across two months, five recent ones
+                LocalDateTime createdAt = i < 5 ? old.plusDays(i * 10L) : LocalDateTime.now().minusMinutes(10 - i);
+                ActivityLog log = new ActivityLog("BOOK_ADDED", null, book, null, null);
+                log.setCreatedAt(createdAt);
+                expected.add(0, activityLogRepository.save(log).getId());
+            }
+            assertEquals(5, activityLogRetentionJob.archiveOlderThan(old.plusYears(1)));
+            // A retention run that archived a row but stopped before deleting it
+            ActivityLog hot = activityLogRepository.findById(expected.get(0)).orElseThrow();
+            activityLogArchive.append(List.of(new ActivityLogArchive.Entry(hot.getId(), hot.getActionType(), null,
+                    null, book.getId(), null, null, hot.getCreatedAt())));
+
+            List<Long> seen = new ArrayList<>();
+            String token = null;
+            do {
+                CursorPage<ActivityLog> page = activityLogService.findPage(null, null, book.getId(), null, null,
+                        token, 3, true);
+                for (ActivityLog log : page.getItems()) {
+                    seen.add(log.getId());
+                    assertEquals(book.getId(), log.getBook().getId());
+                }
+                token = page.getNextPageToken();
+            } while (token != null);
+            assertEquals(expected, seen);
+
+            CursorPage<ActivityLog> hotOnly = activityLogService.findPage(null, null, book.getId(), null, null,
+                    null, 10, false);
+            assertEquals(expected.subList(0, 5), hotOnly.getItems().stream().map(ActivityLog::getId).toList());
+            assertNull(hotOnly.getNextPageToken());
+        } finally {
+            ReflectionTestUtils.setField(activityLogArchive, "root", root);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+
+    private final BookSearchIndex index = new BookSearchIndex();
+
+    @Test
+    void indexesReindexesAndDeletesBooks() {
+        index.index(book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy"));
+        index.index(book(2L, "Dune", "Frank Herbert", "Science Fiction"));
+        assertEquals(2, index.size());
+        assertEquals(List.of(1L), index.search("hobbit", null, null, null));
+        assertEquals(List.of(2L), index.search(null, null, "herbert", null));
+
+        // Saving a book again replaces its old text
+        index.index(book(1L, "The Silmarillion", "J.R.R. Tolkien", "Fantasy"));
+        assertEquals(2, index.size());
+        assertTrue(index.search("hobbit", null, null, null).isEmpty());
+        assertEquals(List.of(1L), index.search("silmarillion", null, null, null));
+
+        index.delete(1L);
+        assertEquals(1, index.size());
+        assertTrue(index.search("tolkien", null, null, null).isEmpty());
+        assertTrue(index.fuzzySearch("tolkien", null, null, null, 2).isEmpty());
+
+        // The freed slot is reused without leaking the deleted book's postings
+        index.index(book(3L, "Emma", "Jane Austen", "Classic"));
+        assertEquals(List.of(3L), index.search("emma", null, null, null));
+        assertTrue(index.search("silmarillion", null, null, null).isEmpty());
+    }
+
+    @Test
+    void matchesSubstringsAndShortPrefixes() {
+        index.index(book(1L, "Foundation", "Isaac Asimov", "Science Fiction"));
+        index.index(book(2L, "Neuromancer", "William Gibson", "Cyberpunk"));
+
+        assertEquals(List.of(1L), index.search("ounda", null, null, null));
+        assertEquals(List.of(2L), index.search("GIBSON", null, null, null));
+        // Under three characters a query matches the start of a word
+        assertEquals(List.of(2L), index.search("wi", null, null, null));
+        assertTrue(index.search("ll", null, null, null).isEmpty());
+        assertTrue(index.search("foundations", null, null, null).isEmpty());
+    }
+
+    @Test
+    void criteriaAreAnded() {
+        index.index(book(1L, "Dune", "Frank Herbert", "Science Fiction"));
+        index.index(book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction"));
+        index.index(book(3L, "The Dune Encyclopedia", "Willis McNelly", "Reference"));
+
+        assertEquals(List.of(1L, 2L), index.search(null, "dune", "herbert", null));
+        assertEquals(List.of(3L), index.search("dune", null, null, "reference"));
+        assertTrue(index.search(null, "dune", "mcnelly", "fiction").isEmpty());
+        assertTrue(index.search(null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void ranksExactThenPrefixThenWordThenSubstringAndTitleAboveAuthor() {
+        index.index(book(1L, "Rebecca's Garden", "Anne Smith", "Gardening"));
+        index.index(book(2L, "Secret Rebecca", "Jane Doe", "Drama"));
+        index.index(book(3L, "Rebecca", "Daphne du Maurier", "Gothic"));
+        index.index(book(4L, "Notes", "Rebecca Solnit", "Essays"));
+        index.index(book(5L, "Xrebeccax", "John Roe", "Misc"));
+
+        assertEquals(List.of(3L, 1L, 2L, 4L, 5L), index.search("rebecca", null, null, null));
+    }
+
+    @Test
+    void tiesAreBrokenByTitleThenId() {
+        index.index(book(2L, "Zebra Tales", "Same Author", "Misc"));
+        index.index(book(1L, "Apple Tales", "Same Author", "Misc"));
+        index.index(book(3L, "Apple Tales", "Same Author", "Misc"));
+
+        assertEquals(List.of(1L, 3L, 2L), index.search(null, null, "same author", null));
+    }
+
+    @Test
+    void fuzzyAllowsTwoTyposInLongWordsUpToMaxDistance() {
+        index.index(book(1L, "The Silmarillion", "J.R.R. Tolkien", "Fantasy"));
+
+        assertEquals(List.of(1L), index.fuzzySearch("tolkein", null, null, null, 2));
+        assertEquals(List.of(1L), index.fuzzySearch(null, "silmarilion", null, null, 1));
+        // Two edits need maxDistance 2
+        assertTrue(index.fuzzySearch("tolkein", null, null, null, 1).isEmpty());
+        assertTrue(index.fuzzySearch(null, null, "tolkein", null, 0).isEmpty());
+        // Three edits are over the limit however large maxDistance is
+        assertTrue(index.fuzzySearch("tolxyzn", null, null, null, 2).isEmpty());
+        assertTrue(index.fuzzySearch("tolxyzn", null, null, null, 5).isEmpty());
+        assertEquals(List.of(1L), index.fuzzySearch("tolkien", null, null, null, -1));
+    }
+
+    @Test
+    void fuzzyAllowsOneTypoInMidLengthWordsAndNoneInShortOnes() {
+        index.index(book(1L, "Dune", "Frank Herbert", "Science Fiction"));
+        index.index(book(2L, "The Cat", "Ann Pole", "Children"));
+
+        assertEquals(List.of(1L), index.fuzzySearch("dume", null, null, null, 2));
+        assertTrue(index.fuzzySearch("dxme", null, null, null, 2).isEmpty());
+        assertEquals(List.of(1L), index.fuzzySearch(null, null, "herbirt", null, 2));
+        // Three letters or fewer must match exactly
+        assertEquals(List.of(2L), index.fuzzySearch("cat", null, null, null, 2));
+        assertTrue(index.fuzzySearch("cot", null, null, null, 2).isEmpty());
+        assertTrue(index.fuzzySearch("pol", null, null, null, 2).isEmpty());
+    }
+
+    @Test
+    void fuzzyRanksCloserWordsFirstAndNeedsEveryWord() {
+        index.index(book(1L, "Dunk", "Someone Else", "Drama"));
+        index.index(book(2L, "Dune", "Frank Herbert", "Science Fiction"));
+        index.index(book(3L, "Dune Messiah", "Frank Herbert", "Science Fiction"));
+
+        assertEquals(List.of(2L, 3L, 1L), index.fuzzySearch("dune", null, null, null, 1));
+        assertEquals(List.of(3L), index.fuzzySearch("dume messaih", null, null, null, 2));
+        assertTrue(index.fuzzySearch("dune messaih", null, null, null, 1).isEmpty());
+        // Genre is matched as in search, never fuzzily
+        assertEquals(List.of(1L), index.fuzzySearch("dune", null, null, "drama", 1));
+        assertTrue(index.fuzzySearch("dune", null, null, "drame", 1).isEmpty());
+    }
+
+    static Book book(Long id, String title, String author, String genre) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        return book;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookServiceTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesByTitleAndAuthorAcrossMissingValues() {
+        Set<Long> ours = new HashSet<>();
+        for (String title : new String[] {null, "Null Paging B", null, "Null Paging A", null}) {
+            Book book = new Book();
+            book.setTitle(title);
+            book.setQuantity(1);
+            book.setAvailable(1);
+            ours.add(bookRepository.save(book).getId());
+        }
+        // A row from before the columns were NOT NULL, filled in at startup
+        jdbcTemplate.execute("ALTER TABLE book ALTER COLUMN title SET NULL");
+        jdbcTemplate.update("INSERT INTO book (title, author, quantity, available) VALUES (NULL, 'Legacy', 1, 1)");
+        ours.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM book", Long.class));
+        bookService.fillMissingSortKeys();
+        jdbcTemplate.execute("ALTER TABLE book ALTER COLUMN title SET NOT NULL");
+
+        for (String sort : List.of("title", "author")) {
+            for (String direction : List.of("asc", "desc")) {
+                List<Long> seen = allIds(sort, direction);
+                assertTrue(seen.containsAll(ours), sort + " " + direction + " skipped a book");
+                assertEquals(seen.size(), new HashSet<>(seen).size());
+            }
+        }
+    }
+
+    private List<Long> allIds(String sort, String direction) {
+        List<Long> ids = new ArrayList<>();
+        String token = null;
+        do {
+            CursorPage<Book> page = bookService.findPage(sort, direction, token, 2);
+            page.getItems().forEach(book -> ids.add(book.getId()));
+            token = page.getNextPageToken();
+        } while (token != null);
+        return ids;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookSuggestion;
+import com.example.demo.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookSuggestIndexTest {
+
+    private final BookSuggestIndex index = new BookSuggestIndex();
+
+    @Test
+    void insertTakesItsPlaceInTheCachedTopTen() {
+        for (long id = 1; id <= 12; id++) {
+            index.index(book(id, "Harbor Tale " + (char) ('a' + id), "Writer " + id));
+        }
+        assertEquals(10, index.suggest("har", 10).size());
+        assertEquals("Harbor Tale b", index.suggest("har", 10).get(0).getText());
+
+        // Shorter text ranks first among equal weights, so it displaces the cached tail
+        index.index(book(13L, "Harbor", "Writer 13"));
+        List<BookSuggestion> top = index.suggest("har", 10);
+        assertEquals("Harbor", top.get(0).getText());
+        assertEquals(13L, top.get(0).getBookId());
+        assertEquals("Harbor Tale j", top.get(9).getText());
+        assertEquals(List.of("Harbor"), texts(index.suggest("harbor", 1)));
+    }
+
+    @Test
+    void deleteLetsTheNextEntryIntoTheCachedTopTen() {
+        for (long id = 1; id <= 12; id++) {
+            index.index(book(id, "Harbor Tale " + (char) ('a' + id), "Writer " + id));
+        }
+        assertEquals("Harbor Tale k", index.suggest("h", 10).get(9).getText());
+
+        index.delete(1L);
+        List<BookSuggestion> top = index.suggest("h", 10);
+        assertEquals("Harbor Tale c", top.get(0).getText());
+        assertEquals("Harbor Tale l", top.get(9).getText());
+        assertEquals(10, top.size());
+
+        index.delete(2L);
+        index.delete(3L);
+        assertEquals(9, index.suggest("h", 10).size());
+        // The deleted book's author went with it
+        assertEquals(List.of(), index.suggest("writer 2", 10));
+    }
+
+    @Test
+    void issuesRaiseTheBookAndItsAuthor() {
+        for (long id = 1; id <= 12; id++) {
+            index.index(book(id, "Harbor Tale " + (char) ('a' + id), id % 2 == 0 ? "Ann Even" : "Ann Odd"));
+        }
+        // Last place, outside every cached top-10 for "harbor"
+        index.recordIssue(12L);
+        index.recordIssue(12L);
+        BookSuggestion first = index.suggest("harbor", 10).get(0);
+        assertEquals("Harbor Tale m", first.getText());
+        assertEquals(3, first.getWeight());
+
+        // Authors weigh the sum of their books
+        List<BookSuggestion> authors = index.suggest("ann", 10);
+        assertEquals(List.of("Ann Even", "Ann Odd"), texts(authors));
+        assertEquals(8, authors.get(0).getWeight());
+        assertEquals(6, authors.get(1).getWeight());
+
+        // Re-indexing with a new title keeps the popularity
+        index.index(book(12L, "Quiet Harbor", "Ann Even"));
+        first = index.suggest("q", 10).get(0);
+        assertEquals("Quiet Harbor", first.getText());
+        assertEquals(3, first.getWeight());
+        assertEquals(List.of(), index.suggest("harbor tale m", 10));
+    }
+
+    @Test
+    void cachedTopTenMatchesARecountAfterRandomChanges() {
+        String[] vocabulary = {"harbor", "harvest", "hare", "salt", "sage", "saga", "moon", "moor", "mode"};
+        Random random = new Random(42);
+        Map<Long, Book> live = new LinkedHashMap<>();
+        Map<Long, Long> weights = new HashMap<>();
+        long nextId = 1;
+
+        for (int step = 0; step < 2000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || live.size() < 5) {
+                long id = nextId++;
+                Book book = book(id, randomTitle(vocabulary, random, id), "Writer " + random.nextInt(6));
+                index.index(book);
+                live.put(id, book);
+                weights.put(id, 1L);
+            } else {
+                long id = new ArrayList<>(live.keySet()).get(random.nextInt(live.size()));
+                if (op < 6) {
+                    index.recordIssue(id);
+                    weights.merge(id, 1L, Long::sum);
+                } else if (op < 8) {
+                    Book book = book(id, randomTitle(vocabulary, random, id), "Writer " + random.nextInt(6));
+                    index.index(book);
+                    live.put(id, book);
+                } else {
+                    index.delete(id);
+                    live.remove(id);
+                    weights.remove(id);
+                }
+            }
+
+            if (step % 50 == 0) {
+                for (String word : vocabulary) {
+                    for (int length = 1; length <= word.length(); length++) {
+                        String prefix = word.substring(0, length);
+                        assertEquals(expected(live, weights, prefix), texts(index.suggest(prefix, 10)),
+                                "prefix " + prefix + " at step " + step);
+                    }
+                }
+                assertEquals(expected(live, weights, "wri"), texts(index.suggest("wri", 10)));
+            }
+        }
+    }
+
+    // Brute-force ranking over every title and author entry: weight, then length, then text
+    private static List<String> expected(Map<Long, Book> live, Map<Long, Long> weights, String prefix) {
+        Map<String, Long> entries = new HashMap<>();
+        Map<String, Long> authorWeights = new HashMap<>();
+        for (Book book : live.values()) {
+            long weight = weights.get(book.getId());
+            entries.put(book.getTitle(), weight);
+            authorWeights.merge(book.getAuthor(), weight, Long::sum);
+        }
+        entries.putAll(authorWeights);
+        return entries.entrySet().stream()
+                .filter(e -> BookSearchIndex.tokenize(BookSearchIndex.normalize(e.getKey())).stream()
+                        .anyMatch(w -> w.startsWith(prefix)))
+                .sorted(Comparator.comparing((Map.Entry<String, Long> e) -> -e.getValue())
+                        .thenComparingInt(e -> e.getKey().length())
+                        .thenComparing(Map.Entry::getKey))
+                .limit(BookSuggestIndex.MAX_SUGGESTIONS)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    // Titles stay unique so the expected order never depends on internal entry ids
+    private static String randomTitle(String[] vocabulary, Random random, long id) {
+        String first = vocabulary[random.nextInt(vocabulary.length)];
+        String second = vocabulary[random.nextInt(vocabulary.length)];
+        return capitalize(first) + " " + second + " " + id + "x" + random.nextInt(1000);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static List<String> texts(List<BookSuggestion> suggestions) {
+        return suggestions.stream().map(BookSuggestion::getText).toList();
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Messages per second against a local SMTP stand-in, one session per message versus one session
+// per batch. The network round trips to a real server make the gap larger than measured here.
+// The timing comparison runs with -Pbenchmark; size it with -Dbenchmark.mail.messages=10000
+// (default 2000).
+class BulkMailSenderBenchmarkTest {
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.mail.messages", 2000);
+    private static final int CONCURRENCY = 4;
+    private static final int BATCH_SIZE = 50;
+
+    @Test
+    void batchesShareOneConnection() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            BulkMailSender sender = senderFor(smtp.port());
+
+            BulkMailSender.Result result = sender.sendAll(messages(120), BATCH_SIZE, CONCURRENCY);
+            assertEquals(120, result.sent());
+            assertEquals(3, smtp.connections());
+
+            sender.sendAll(messages(10), 1, CONCURRENCY);
+            assertEquals(13, smtp.connections());
+            assertEquals(130, smtp.accepted());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void reusingConnectionsSendsFasterThanOneSessionPerMessage() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            BulkMailSender sender = senderFor(smtp.port());
+            // Warm up JavaMail and the JIT so the first configuration isn't penalised
+            sender.sendAll(messages(200), BATCH_SIZE, CONCURRENCY);
+
+            int connectionsBefore = smtp.connections();
+            double perMessage = run(sender, 1);
+            int perMessageConnections = smtp.connections() - connectionsBefore;
+
+            connectionsBefore = smtp.connections();
+            double batched = run(sender, BATCH_SIZE);
+            int batchedConnections = smtp.connections() - connectionsBefore;
+
+            System.out.printf("Bulk mail benchmark, %d messages, %d connections at a time:%n", MESSAGES, CONCURRENCY);
+            System.out.printf("  one session per message:    %8.0f msg/s (%d connections)%n", perMessage, perMessageConnections);
+            System.out.printf("  %3d messages per session:    %8.0f msg/s (%d connections)%n", BATCH_SIZE, batched, batchedConnections);
+
+            assertEquals(200 + 2 * MESSAGES, smtp.accepted());
+            assertEquals(MESSAGES, perMessageConnections);
+            assertEquals((MESSAGES + BATCH_SIZE - 1) / BATCH_SIZE, batchedConnections);
+            assertTrue(batched > perMessage, "batched sends should outpace one session per message");
+        }
+    }
+
+    private static double run(BulkMailSender sender, int batchSize) {
+        List<SimpleMailMessage> messages = messages(MESSAGES);
+        long start = System.nanoTime();
+        BulkMailSender.Result result = sender.sendAll(messages, batchSize, CONCURRENCY);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(MESSAGES, result.sent());
+        return MESSAGES / seconds;
+    }
+
+    private static BulkMailSender senderFor(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", "false");
+        properties.put("mail.smtp.starttls.enable", "false");
+        mailSender.setJavaMailProperties(properties);
+
+        BulkMailSender sender = new BulkMailSender();
+        ReflectionTestUtils.setField(sender, "mailSender", mailSender);
+        ReflectionTestUtils.setField(sender, "fromEmail", "library@localhost");
+        return sender;
+    }
+
+    private static List<SimpleMailMessage> messages(int count) {
+        List<SimpleMailMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo("student" + i + "@localhost");
+            message.setSubject("Book Return Reminder - Library Management System");
+            message.setText("Dear Student,\n\nThis is a reminder that you have a book due soon.\n");
+            messages.add(message);
+        }
+        return messages;
+    }
+}
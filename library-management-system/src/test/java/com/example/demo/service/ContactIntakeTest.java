@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Contact;
+import com.example.demo.service.ContactIntake.Admission;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContactIntakeTest {
+
+    private final List<Contact> stored = new ArrayList<>();
+    private boolean failStore;
+    private ContactIntake intake;
+
+    @BeforeEach
+    void setUp() {
+        intake = new ContactIntake();
+        ReflectionTestUtils.setField(intake, "contactService", new ContactService() {
+            @Override
+            public Contact receive(Contact contact) {
+                if (failStore) {
+                    throw new IllegalStateException("database unavailable");
+                }
+                stored.add(contact);
+                return contact;
+            }
+        });
+        ReflectionTestUtils.setField(intake, "burst", 3);
+        ReflectionTestUtils.setField(intake, "perMinute", 2.0);
+        ReflectionTestUtils.setField(intake, "duplicateWindowMinutes", 60L);
+    }
+
+    @Test
+    void allowsABurstThenRefillsAtTheConfiguredRate() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Message " + i), "10.0.0.1"));
+        }
+        assertEquals(Admission.RATE_LIMITED, intake.submit(contact("reader@example.com", "Message 3"), "10.0.0.1"));
+        // Other clients have buckets of their own
+        assertEquals(Admission.ACCEPTED, intake.submit(contact("other@example.com", "Message 3"), "10.0.0.2"));
+
+        // Two a minute: 30 seconds buys one more submission, not two
+        backdate("10.0.0.1", 30_000);
+        assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Message 4"), "10.0.0.1"));
+        assertEquals(Admission.RATE_LIMITED, intake.submit(contact("reader@example.com", "Message 5"), "10.0.0.1"));
+
+        // Never more than the burst, however long the client was idle
+        backdate("10.0.0.1", 3_600_000);
+        for (int i = 6; i < 9; i++) {
+            assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Message " + i), "10.0.0.1"));
+        }
+        assertEquals(Admission.RATE_LIMITED, intake.submit(contact("reader@example.com", "Message 9"), "10.0.0.1"));
+        assertEquals(8, stored.size());
+    }
+
+    @Test
+    void dropsRepeatsWithinTheDuplicateWindow() {
+        assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Where is my book?"), "10.0.0.1"));
+        // Case and whitespace don't make it new, and neither does another address
+        assertEquals(Admission.DUPLICATE,
+                intake.submit(contact(" Reader@Example.com", "where is  my book? "), "10.0.0.2"));
+        assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Where is my fine?"), "10.0.0.1"));
+        assertEquals(2, stored.size());
+
+        // Once the window has passed the same message is taken again
+        expireDigests();
+        assertEquals(Admission.ACCEPTED, intake.submit(contact("reader@example.com", "Where is my book?"), "10.0.0.3"));
+        assertEquals(3, stored.size());
+    }
+
+    @Test
+    void aSubmissionThatFailedToStoreCanBeRetried() {
+        failStore = true;
+        Contact contact = contact("reader@example.com", "Please renew my loan");
+        assertThrows(IllegalStateException.class, () -> intake.submit(contact, "10.0.0.1"));
+
+        failStore = false;
+        assertEquals(Admission.ACCEPTED, intake.submit(contact, "10.0.0.1"));
+        assertEquals(Admission.DUPLICATE, intake.submit(contact, "10.0.0.1"));
+        assertEquals(List.of(contact), stored);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void backdate(String clientAddress, long millis) {
+        Object bucket = ((Map<String, Object>) ReflectionTestUtils.getField(intake, "buckets")).get(clientAddress);
+        long refilledAt = (Long) ReflectionTestUtils.getField(bucket, "refilledAt");
+        ReflectionTestUtils.setField(bucket, "refilledAt", refilledAt - millis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expireDigests() {
+        ((Map<Long, Long>) ReflectionTestUtils.getField(intake, "recent")).replaceAll((key, until) -> 0L);
+    }
+
+    private static Contact contact(String email, String message) {
+        return new Contact("Reader", email, "Question", message);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import com.example.demo.model.QueuedEmail;
+import com.example.demo.repository.QueuedEmailRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Runs the application's queue against a local SMTP stand-in that refuses chosen messages.
+// The test profile retries after 200 ms doubling up to 1 s, and gives up after 3 attempts.
+@SpringBootTest
+@ActiveProfiles("test")
+class EmailQueueTest {
+
+    private static final long INITIAL_BACKOFF_MS = 200;
+
+    @Autowired
+    private EmailQueue emailQueue;
+
+    @Autowired
+    private BulkMailSender bulkMailSender;
+
+    @Autowired
+    private QueuedEmailRepository queuedEmailRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SmtpStandIn smtp;
+    private JavaMailSender configuredSender;
+    private String configuredFrom;
+
+    @BeforeEach
+    void useStandIn() throws Exception {
+        smtp = new SmtpStandIn();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.port());
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", "false");
+        properties.put("mail.smtp.starttls.enable", "false");
+        mailSender.setJavaMailProperties(properties);
+
+        configuredSender = (JavaMailSender) ReflectionTestUtils.getField(bulkMailSender, "mailSender");
+        configuredFrom = (String) ReflectionTestUtils.getField(bulkMailSender, "fromEmail");
+        ReflectionTestUtils.setField(bulkMailSender, "mailSender", mailSender);
+        ReflectionTestUtils.setField(bulkMailSender, "fromEmail", "library@localhost");
+    }
+
+    @AfterEach
+    void restoreSender() throws Exception {
+        ReflectionTestUtils.setField(bulkMailSender, "mailSender", configuredSender);
+        ReflectionTestUtils.setField(bulkMailSender, "fromEmail", configuredFrom);
+        smtp.close();
+    }
+
+    @Test
+    void retriesWithGrowingJitteredBackoffUntilSent() throws Exception {
+        String to = "retry-student@localhost";
+        smtp.failNext(to, 2);
+        LocalDateTime before = LocalDateTime.now();
+        emailQueue.enqueue(to, "Retry", "Body");
+        Long id = idOf(to);
+
+        QueuedEmail first = await(id, e -> e.getAttempts() == 1);
+        LocalDateTime seenFirst = LocalDateTime.now();
+        assertEquals("PENDING", first.getStatus());
+        assertTrue(first.getLastError().contains("451"), first.getLastError());
+        assertBackoff(first.getNextAttemptAt(), before, seenFirst, INITIAL_BACKOFF_MS);
+
+        QueuedEmail second = await(id, e -> e.getAttempts() == 2);
+        assertEquals("PENDING", second.getStatus());
+        // Not retried before its time, and the wait doubled
+        assertBackoff(second.getNextAttemptAt(), seenFirst, LocalDateTime.now(), 2 * INITIAL_BACKOFF_MS);
+
+        awaitGone(id);
+        assertEquals(1, smtp.accepted());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCapWithJitter() {
+        for (int attempts = 1; attempts <= 8; attempts++) {
+            long base = Math.min(INITIAL_BACKOFF_MS << (attempts - 1), 1000);
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < 50; i++) {
+                long backoff = ReflectionTestUtils.invokeMethod(emailQueue, "backoffMillis", attempts);
+                assertTrue(backoff >= base * 0.8 && backoff <= base * 1.2, attempts + " attempts: " + backoff);
+                seen.add(backoff);
+            }
+            assertTrue(seen.size() > 1, "no jitter after " + attempts + " attempts");
+        }
+    }
+
+    @Test
+    void deadLettersAfterMaxAttemptsUntilRequeued() throws Exception {
+        String to = "dead-student@localhost";
+        smtp.failNext(to, 3);
+        emailQueue.enqueue(to, "Dead", "Body");
+        Long id = idOf(to);
+
+        QueuedEmail dead = await(id, e -> "DEAD".equals(e.getStatus()));
+        assertEquals(3, dead.getAttempts());
+        assertTrue(dead.getLastError().contains("451"), dead.getLastError());
+        assertTrue(emailQueue.deadLetters(100).stream().anyMatch(e -> e.getId().equals(id)));
+        // Left alone once dead
+        Thread.sleep(1500);
+        assertEquals("DEAD", queuedEmailRepository.findById(id).orElseThrow().getStatus());
+        assertEquals(0, smtp.accepted());
+
+        assertTrue(emailQueue.requeueDead() >= 1);
+        awaitGone(id);
+        assertEquals(1, smtp.accepted());
+    }
+
+    @Test
+    void messagesLeftSendingByACrashGoOutOnStartup() throws Exception {
+        String to = "crashed-student@localhost";
+        jdbcTemplate.update("INSERT INTO email_queue (recipient, subject, body, status, attempts, next_attempt_at, created_at) "
+                + "VALUES (?, 'Crashed', 'Body', 'SENDING', 0, ?, ?)", to, LocalDateTime.now(), LocalDateTime.now());
+        Long id = idOf(to);
+        // The running queue never claims a message another run was sending
+        Thread.sleep(1500);
+        assertEquals("SENDING", queuedEmailRepository.findById(id).orElseThrow().getStatus());
+
+        EmailQueue restarted = new EmailQueue();
+        for (String field : new String[] {"jdbcTemplate", "queuedEmailRepository", "bulkMailSender", "concurrency",
+                "maxAttempts", "initialBackoffMs", "maxBackoffMs", "pollIntervalMs", "relayBatchSize", "maxPerSecond"}) {
+            ReflectionTestUtils.setField(restarted, field, ReflectionTestUtils.getField(emailQueue, field));
+        }
+        restarted.start();
+        try {
+            awaitGone(id);
+            // At least once: the running queue may pick the released message up too
+            assertTrue(smtp.accepted() >= 1);
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    // nextAttemptAt was set by a failure somewhere between from and to, jitter +/-20%
+    private static void assertBackoff(LocalDateTime nextAttemptAt, LocalDateTime from, LocalDateTime to, long backoffMs) {
+        LocalDateTime earliest = from.plus(Duration.ofMillis((long) (backoffMs * 0.8)));
+        LocalDateTime latest = to.plus(Duration.ofMillis((long) (backoffMs * 1.2)));
+        assertFalse(nextAttemptAt.isBefore(earliest), nextAttemptAt + " before " + earliest);
+        assertFalse(nextAttemptAt.isAfter(latest), nextAttemptAt + " after " + latest);
+    }
+
+    private Long idOf(String recipient) {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM email_queue WHERE recipient = ?", Long.class, recipient);
+    }
+
+    private QueuedEmail await(Long id, Predicate<QueuedEmail> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<QueuedEmail> email = queuedEmailRepository.findById(id);
+            if (email.isPresent() && condition.test(email.get())) {
+                return email.get();
+            }
+            Thread.sleep(10);
+        }
+        return fail("email " + id + " never reached the expected state: " + queuedEmailRepository.findById(id));
+    }
+
+    private void awaitGone(Long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (queuedEmailRepository.existsById(id)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("email " + id + " was never sent");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
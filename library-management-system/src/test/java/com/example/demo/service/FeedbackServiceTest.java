@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedbackView;
+import com.example.demo.model.Book;
+import com.example.demo.model.Category;
+import com.example.demo.model.Feedback;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FeedbackServiceTest {
+
+    @Autowired
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void aPageIsOneSelectWithBooksAndReviewersJoined() {
+        // Distinct books (each in its own category) and reviewers, so per-row loads would show up
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Category category = new Category();
+            category.setName("Feedback Page Category " + i);
+            books.add(book("Feedback Page Book " + i, categoryRepository.save(category)));
+        }
+        for (int i = 0; i < 5; i++) {
+            feedbackService.create(feedback(books.get(i), user("feedback-page-" + i), 1 + i));
+        }
+
+        StatementCounter.reset();
+        CursorPage<FeedbackView> page = feedbackService.findPage(null, null, null, 5);
+
+        assertEquals(5, page.getItems().size());
+        assertEquals(1, StatementCounter.count());
+        assertEquals("Feedback Page Book 4", page.getItems().get(0).getBookTitle());
+        assertEquals("feedback-page-4", page.getItems().get(0).getUsername());
+    }
+
+    @Test
+    void pagesNewestFirstWithinOneBook() {
+        Book book = book("Feedback Paging Book", null);
+        Book other = book("Feedback Paging Other", null);
+        User reviewer = user("feedback-paging");
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(feedbackService.create(feedback(book, reviewer, 1 + i)).getId());
+        }
+        feedbackService.create(feedback(other, reviewer, 3));
+
+        List<Long> seen = new ArrayList<>();
+        String token = null;
+        do {
+            CursorPage<FeedbackView> page = feedbackService.findPage(book.getId(), null, token, 2);
+            page.getItems().forEach(view -> seen.add(view.getId()));
+            token = page.getNextPageToken();
+        } while (token != null);
+
+        Collections.reverse(created);
+        assertEquals(created, seen);
+        assertEquals(6, feedbackService.findPage(null, reviewer.getId(), null, 50).getItems().size());
+        assertNull(feedbackService.findPage(book.getId(), null, null, 5).getNextPageToken());
+    }
+
+    private Book book(String title, Category category) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Feedback Author");
+        book.setQuantity(1);
+        book.setAvailable(1);
+        book.setCategory(category);
+        return bookRepository.save(book);
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setRollNumber(username);
+        user.setPassword("secret");
+        user.setRole("STUDENT");
+        user.setStatus("APPROVED");
+        return userRepository.save(user);
+    }
+
+    private static Feedback feedback(Book book, User user, int rating) {
+        Feedback feedback = new Feedback();
+        feedback.setBook(book);
+        feedback.setUser(user);
+        feedback.setRating(rating);
+        feedback.setComment("Comment " + rating);
+        return feedback;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CirculationResult;
+import com.example.demo.model.Book;
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IssueServiceConcurrencyTest {
+
+    private static final int APPROVERS = 64;
+    private static final int COPIES = 10;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentApprovalsAndReturnsNeverOversellOrDrift() throws Exception {
+        Book book = new Book();
+        book.setTitle("Stress Test Title");
+        book.setAuthor("Stress Test Author");
+        book.setQuantity(COPIES);
+        book.setAvailable(COPIES);
+        Long bookId = bookRepository.save(book).getId();
+
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < APPROVERS; i++) {
+            requestIds.add(createPendingRequest(book, "stress-student-" + i).getId());
+        }
+
+        // Every approver handles its own request and also races another approver for a second one
+        AtomicInteger approved = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean sawInvalidStock = new AtomicBoolean(false);
+        Thread monitor = startStockMonitor(bookId, running, sawInvalidStock);
+
+        runConcurrently(APPROVERS, i -> {
+            for (Long requestId : List.of(requestIds.get(i), requestIds.get((i + 1) % APPROVERS))) {
+                CirculationResult result = issueService.approveRequest(requestId);
+                if (result.isSuccess()) {
+                    approved.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(COPIES, approved.get());
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getAvailable());
+        assertEquals(COPIES, issueRepository.findByStatus("APPROVED").stream()
+                .filter(issue -> issue.getBook().getId().equals(bookId)).count());
+        assertEquals(APPROVERS - COPIES, issueRepository.findByStatus("REJECTED").stream()
+                .filter(issue -> issue.getBook().getId().equals(bookId)).count());
+
+        // Every approved issue is returned by two approvers at once; only one return may count
+        List<Long> issuedIds = issueRepository.findByStatus("APPROVED").stream()
+                .filter(issue -> issue.getBook().getId().equals(bookId))
+                .map(Issue::getId)
+                .toList();
+        AtomicInteger returned = new AtomicInteger();
+        runConcurrently(APPROVERS, i -> {
+            if (issueService.returnBook(issuedIds.get(i % issuedIds.size())).isSuccess()) {
+                returned.incrementAndGet();
+            }
+        });
+
+        running.set(false);
+        monitor.join();
+
+        assertEquals(COPIES, returned.get());
+        assertEquals(COPIES, bookRepository.findById(bookId).orElseThrow().getAvailable());
+        assertFalse(sawInvalidStock.get(), "available left the range [0, quantity] during the run");
+    }
+
+    private Issue createPendingRequest(Book book, String username) {
+        User student = new User();
+        student.setUsername(username);
+        student.setRollNumber(username);
+        student.setPassword("secret");
+        student.setRole("STUDENT");
+        student.setStatus("APPROVED");
+        userRepository.save(student);
+
+        Issue issue = new Issue();
+        issue.setBook(book);
+        issue.setStudent(student);
+        issue.setStatus("PENDING");
+        issue.setRequestedDate(LocalDate.now());
+        return issueRepository.save(issue);
+    }
+
+    private Thread startStockMonitor(Long bookId, AtomicBoolean running, AtomicBoolean sawInvalidStock) {
+        Thread monitor = new Thread(() -> {
+            while (running.get()) {
+                int available = bookRepository.findById(bookId).orElseThrow().getAvailable();
+                if (available < 0 || available > COPIES) {
+                    sawInvalidStock.set(true);
+                }
+            }
+        });
+        monitor.start();
+        return monitor;
+    }
+
+    private void runConcurrently(int threads, IndexedTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int index = i;
+                Callable<Void> call = () -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                };
+                futures.add(pool.submit(call));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+}
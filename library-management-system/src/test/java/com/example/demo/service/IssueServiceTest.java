@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CirculationResult;
+import com.example.demo.model.Book;
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IssueServiceTest {
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void anIssuedLoanCarriesTheBooksNewShelfCount() {
+        Book book = book("Issue Count Title", 3);
+        CirculationResult result = issueService.issueBook(loan(book, student("issue-count-student")));
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getIssue().getBook().getAvailable());
+        assertEquals(2, available(book));
+    }
+
+    @Test
+    void returnedLoansCarryTheBooksNewShelfCounts() {
+        Book book = book("Return Count Title", 3);
+        Book other = book("Return Count Other", 1);
+        Long first = issueService.issueBook(loan(book, student("return-count-first"))).getIssueId();
+        Long second = issueService.issueBook(loan(book, student("return-count-second"))).getIssueId();
+        Long third = issueService.issueBook(loan(other, student("return-count-third"))).getIssueId();
+        assertEquals(1, available(book));
+
+        List<CirculationResult> results = issueService.returnBooks(List.of(first, Long.MAX_VALUE, second, third));
+
+        assertEquals(4, results.size());
+        assertFalse(results.get(1).isSuccess());
+        for (CirculationResult result : List.of(results.get(0), results.get(2))) {
+            assertTrue(result.isSuccess());
+            assertEquals(3, result.getIssue().getBook().getAvailable());
+        }
+        assertEquals(1, results.get(3).getIssue().getBook().getAvailable());
+        assertEquals(3, available(book));
+        assertEquals(1, available(other));
+    }
+
+    private int available(Book book) {
+        return bookRepository.findById(book.getId()).orElseThrow().getAvailable();
+    }
+
+    // As the admin endpoint builds it: the book and student were loaded before the transaction
+    private static Issue loan(Book book, User student) {
+        Issue issue = new Issue();
+        issue.setBook(book);
+        issue.setStudent(student);
+        return issue;
+    }
+
+    private Book book(String title, int copies) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Issue Count Author");
+        book.setQuantity(copies);
+        book.setAvailable(copies);
+        return bookRepository.save(book);
+    }
+
+    private User student(String username) {
+        User student = new User();
+        student.setUsername(username);
+        student.setRollNumber(username);
+        student.setPassword("secret");
+        student.setRole("STUDENT");
+        student.setStatus("APPROVED");
+        return userRepository.save(student);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each test scans its own year, decades ahead, so loans made elsewhere in the shared database never
+// fall inside the lookback. Emails are captured instead of queued.
+@SpringBootTest
+@ActiveProfiles("test")
+class OverdueNotificationJobTest {
+
+    private static final AtomicInteger STUDENTS = new AtomicInteger();
+    private static final AtomicInteger BOOKS = new AtomicInteger();
+
+    @Autowired
+    private OverdueNotificationJob job;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<SimpleMailMessage> queued = new ArrayList<>();
+    private EmailQueue configuredQueue;
+    private boolean configuredDigest;
+    private int configuredChunkSize;
+
+    @BeforeEach
+    void captureEmails() {
+        configuredQueue = (EmailQueue) ReflectionTestUtils.getField(emailService, "emailQueue");
+        configuredDigest = (Boolean) ReflectionTestUtils.getField(job, "digest");
+        configuredChunkSize = (Integer) ReflectionTestUtils.getField(job, "chunkSize");
+        ReflectionTestUtils.setField(emailService, "emailQueue", new EmailQueue() {
+            @Override
+            public void enqueueAll(List<SimpleMailMessage> messages) {
+                queued.addAll(messages);
+            }
+        });
+        // Several chunks out of a handful of loans
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+    }
+
+    @AfterEach
+    void restore() {
+        ReflectionTestUtils.setField(emailService, "emailQueue", configuredQueue);
+        ReflectionTestUtils.setField(job, "digest", configuredDigest);
+        ReflectionTestUtils.setField(job, "chunkSize", configuredChunkSize);
+    }
+
+    @Test
+    void aSecondScanOnTheSameDayQueuesNothing() {
+        ReflectionTestUtils.setField(job, "digest", false);
+        LocalDate today = LocalDate.of(2090, 6, 10);
+        Issue dueTomorrow = loan(student(), today.plusDays(1));
+        Issue dueInTwoDays = loan(student(), today.plusDays(2));
+        Issue dueLater = loan(student(), today.plusDays(3));
+        Issue overdue = loan(student(), today.minusDays(1));
+        Issue longOverdue = loan(student(), today.minusDays(5));
+        Issue returned = loan(student(), today.plusDays(1));
+        returned.setReturned(true);
+        issueRepository.save(returned);
+
+        OverdueNotificationJob.Result first = job.scan(today);
+        assertEquals(new OverdueNotificationJob.Result(2, 2, 4), first);
+        assertEquals(List.of(email(dueTomorrow), email(dueInTwoDays), email(longOverdue), email(overdue)),
+                recipients());
+        assertEquals(today, reload(dueTomorrow).getReminderSentOn());
+        assertEquals(today, reload(overdue).getOverdueAlertSentOn());
+        assertNull(reload(dueLater).getReminderSentOn());
+
+        queued.clear();
+        assertEquals(new OverdueNotificationJob.Result(0, 0, 0), job.scan(today));
+        assertEquals(List.of(), recipients());
+    }
+
+    @Test
+    void theOverdueAlertRepeatsOnlyAfterTheRepeatInterval() {
+        ReflectionTestUtils.setField(job, "digest", false);
+        int repeatDays = (Integer) ReflectionTestUtils.getField(job, "overdueRepeatDays");
+        LocalDate today = LocalDate.of(2091, 3, 1);
+        Issue overdue = loan(student(), today.minusDays(1));
+
+        assertEquals(1, job.scan(today).overdueAlerts());
+        for (int day = 1; day < repeatDays; day++) {
+            assertEquals(0, job.scan(today.plusDays(day)).emails(), "day " + day);
+        }
+        assertEquals(1, job.scan(today.plusDays(repeatDays)).overdueAlerts());
+        assertEquals(today.plusDays(repeatDays), reload(overdue).getOverdueAlertSentOn());
+        assertEquals(List.of(email(overdue), email(overdue)), recipients());
+    }
+
+    @Test
+    void aDigestCoversEveryLoanOfAStudentInOneEmail() {
+        ReflectionTestUtils.setField(job, "digest", true);
+        LocalDate today = LocalDate.of(2092, 9, 15);
+        User busy = student();
+        List<Issue> dueSoon = List.of(loan(busy, today.plusDays(1)), loan(busy, today.plusDays(2)),
+                loan(busy, today.plusDays(2)));
+        List<Issue> overdue = List.of(loan(busy, today.minusDays(1)), loan(busy, today.minusDays(20)));
+        Issue other = loan(student(), today.minusDays(3));
+
+        // Five loans of one student, read across several chunks, still make one email
+        assertEquals(new OverdueNotificationJob.Result(3, 3, 2), job.scan(today));
+        assertEquals(List.of(busy.getEmail(), email(other)), recipients());
+        String digest = queued.get(0).getText();
+        for (Issue loan : dueSoon) {
+            assertEquals(today, reload(loan).getReminderSentOn());
+            assertTrue(digest.contains(loan.getBook().getTitle()), digest);
+        }
+        for (Issue loan : overdue) {
+            assertEquals(today, reload(loan).getOverdueAlertSentOn());
+            assertTrue(digest.contains(loan.getBook().getTitle()), digest);
+        }
+        assertEquals(today, reload(other).getOverdueAlertSentOn());
+
+        queued.clear();
+        assertEquals(new OverdueNotificationJob.Result(0, 0, 0), job.scan(today));
+        assertEquals(List.of(), recipients());
+    }
+
+    private List<String> recipients() {
+        return queued.stream().map(message -> message.getTo()[0]).toList();
+    }
+
+    private Issue reload(Issue issue) {
+        return issueRepository.findById(issue.getId()).orElseThrow();
+    }
+
+    private static String email(Issue issue) {
+        return issue.getStudent().getEmail();
+    }
+
+    private User student() {
+        String name = "overdue-student-" + STUDENTS.incrementAndGet() + "-" + System.nanoTime();
+        User student = new User();
+        student.setUsername(name);
+        student.setRollNumber(name);
+        student.setPassword("secret");
+        student.setRole("STUDENT");
+        student.setStatus("APPROVED");
+        student.setEmail(name + "@localhost");
+        return userRepository.save(student);
+    }
+
+    // A loan of its own copy, issued two weeks before it is due
+    private Issue loan(User student, LocalDate returnDate) {
+        Book book = new Book();
+        book.setTitle("Overdue Book " + BOOKS.incrementAndGet() + " Title");
+        book.setAuthor("Overdue Author");
+        book.setQuantity(1);
+        book.setAvailable(0);
+        Issue issue = new Issue();
+        issue.setBook(bookRepository.save(book));
+        issue.setStudent(student);
+        issue.setIssueDate(returnDate.minusDays(14));
+        issue.setReturnDate(returnDate);
+        return issueRepository.save(issue);
+    }
+}
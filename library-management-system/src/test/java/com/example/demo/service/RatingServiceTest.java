@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.model.Book;
+import com.example.demo.model.Feedback;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRatingRepository;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.FeedbackRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RatingServiceTest {
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private FeedbackService feedbackService;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void summaryMatchesARecountAfterRandomChanges() {
+        Book book = book("Rating Recount Book");
+        Book other = book("Rating Recount Other");
+        User reviewer = user("rating-recount");
+        Random random = new Random(7);
+        List<Long> live = new ArrayList<>();
+
+        for (int step = 0; step < 200; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || live.isEmpty()) {
+                live.add(feedbackService.create(feedback(book, reviewer, 1 + random.nextInt(5))).getId());
+            } else if (op < 8) {
+                Long id = live.get(random.nextInt(live.size()));
+                feedbackService.update(id, 1 + random.nextInt(5), "Edited at " + step);
+            } else {
+                assertTrue(feedbackService.delete(live.remove(random.nextInt(live.size()))));
+            }
+            if (step % 20 == 0) {
+                // Reviews of another book never leak into this one
+                feedbackService.create(feedback(other, reviewer, 1 + random.nextInt(5)));
+            }
+            assertSummary(recount(book.getId()), ratingService.summary(book.getId()));
+        }
+        assertSummary(recount(other.getId()), ratingService.summary(other.getId()));
+        assertEquals(live.size(), ratingService.summary(book.getId()).getCount());
+    }
+
+    @Test
+    void aChangeWithNoAggregateRowIsRolledBack() {
+        Book book = book("Rating Missing Row Book");
+        User reviewer = user("rating-missing-row");
+        Feedback feedback = feedbackService.create(feedback(book, reviewer, 4));
+        bookRatingRepository.deleteById(book.getId());
+
+        assertThrows(IllegalStateException.class, () -> feedbackService.update(feedback.getId(), 1, "Changed"));
+        Feedback unchanged = feedbackRepository.findById(feedback.getId()).orElseThrow();
+        assertEquals(4, unchanged.getRating());
+        assertEquals("Comment 4", unchanged.getComment());
+
+        assertThrows(IllegalStateException.class, () -> feedbackService.delete(feedback.getId()));
+        assertTrue(feedbackRepository.existsById(feedback.getId()));
+        assertFalse(bookRatingRepository.existsById(book.getId()));
+    }
+
+    @Test
+    void backfillBuildsMissingRowsFromTheFeedbackTable() {
+        Book rebuilt = book("Rating Backfill Book");
+        Book kept = book("Rating Backfill Kept");
+        User reviewer = user("rating-backfill");
+        for (int rating : new int[] {5, 5, 3, 1, 4}) {
+            feedbackService.create(feedback(rebuilt, reviewer, rating));
+        }
+        feedbackService.create(feedback(kept, reviewer, 2));
+        // Rows from before the aggregates existed: one missing, one present
+        bookRatingRepository.deleteById(rebuilt.getId());
+
+        ratingService.backfill();
+        RatingSummary summary = ratingService.summary(rebuilt.getId());
+        assertSummary(recount(rebuilt.getId()), summary);
+        assertEquals(5, summary.getCount());
+        assertEquals(3.6, summary.getAverage());
+        assertEquals(List.of(1L, 0L, 1L, 1L, 2L), summary.getHistogram());
+        assertSummary(recount(kept.getId()), ratingService.summary(kept.getId()));
+
+        // Nothing left to build, and the rebuilt row takes further changes
+        assertEquals(0, bookRatingRepository.insertMissing());
+        feedbackService.create(feedback(rebuilt, reviewer, 2));
+        assertSummary(recount(rebuilt.getId()), ratingService.summary(rebuilt.getId()));
+    }
+
+    // Counted from the feedback table, as the aggregates were before book_ratings existed
+    private RatingSummary recount(Long bookId) {
+        List<Integer> ratings = jdbcTemplate.queryForList("SELECT rating FROM feedback WHERE book_id = ?",
+                Integer.class, bookId);
+        RatingSummary summary = RatingSummary.unrated(bookId);
+        List<Long> histogram = new ArrayList<>(List.of(0L, 0L, 0L, 0L, 0L));
+        long sum = 0;
+        for (int rating : ratings) {
+            histogram.set(rating - 1, histogram.get(rating - 1) + 1);
+            sum += rating;
+        }
+        summary.setCount(ratings.size());
+        if (!ratings.isEmpty()) {
+            summary.setAverage(Math.round(sum * 100.0 / ratings.size()) / 100.0);
+        }
+        summary.setHistogram(histogram);
+        return summary;
+    }
+
+    private static void assertSummary(RatingSummary expected, RatingSummary actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getAverage(), actual.getAverage());
+        assertEquals(expected.getHistogram(), actual.getHistogram());
+    }
+
+    private Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Rating Author");
+        book.setQuantity(1);
+        book.setAvailable(1);
+        return bookRepository.save(book);
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setRollNumber(username);
+        user.setPassword("secret");
+        user.setRole("STUDENT");
+        user.setStatus("APPROVED");
+        return userRepository.save(user);
+    }
+
+    private static Feedback feedback(Book book, User user, int rating) {
+        Feedback feedback = new Feedback();
+        feedback.setBook(book);
+        feedback.setUser(user);
+        feedback.setRating(rating);
+        feedback.setComment("Comment " + rating);
+        return feedback;
+    }
+}
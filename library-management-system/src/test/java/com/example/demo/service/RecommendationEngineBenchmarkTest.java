@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Full build, lookup and incremental update times over synthetic loan history: about 50 loans per
+// student, books drawn by Zipf-distributed popularity. Runs with -Pbenchmark; size with
+// -Dbenchmark.recommendations.rows=10000000 (default 1000000).
+class RecommendationEngineBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.recommendations.rows", 1_000_000);
+    private static final int STUDENTS = Math.max(100, ROWS / 50);
+    private static final int BOOKS = Math.max(1000, ROWS / 200);
+    private static final int LOOKUPS = 1_000_000;
+    private static final int UPDATES = 1_000;
+
+    @Test
+    void ranksByCosineSimilarity() {
+        RecommendationEngine engine = engine();
+        // Student 1 borrowed books 1-3, student 2 books 1-2, student 3 books 1 and 4
+        engine.rebuild(new long[] {1, 1, 1, 2, 2, 3, 3}, new long[] {1, 2, 3, 1, 2, 1, 4}, 7);
+
+        List<RecommendationEngine.Recommendation> forBook1 = engine.recommend(1, 10);
+        assertEquals(List.of(2L, 3L, 4L), forBook1.stream().map(RecommendationEngine.Recommendation::bookId).toList());
+        assertEquals(2 / Math.sqrt(3 * 2), forBook1.get(0).score(), 1e-6);
+        assertEquals(2, forBook1.get(0).coBorrowers());
+        assertEquals(List.of(), engine.recommend(99, 10));
+
+        // Student 3 borrows book 2, which now co-occurs with book 4 too
+        engine.apply(List.of(new RecommendationEngine.Loan(3, 2)));
+        assertEquals(List.of(1L, 3L, 4L), engine.recommend(2, 10).stream()
+            .map(RecommendationEngine.Recommendation::bookId).toList());
+    }
+
+    // A newly borrowed book is rescored exactly; other lists may keep a slightly high score until a
+    // rebuild, and a repeat loan of the same book changes nothing
+    @Test
+    void incrementalUpdateRescoresTheBorrowedBookExactly() {
+        int rows = 20_000;
+        int updates = 50;
+        long[] studentIds = new long[rows + updates];
+        long[] bookIds = new long[rows + updates];
+        generate(studentIds, bookIds, rows + updates, new Random(11));
+
+        Set<String> pairs = new HashSet<>();
+        for (int i = 0; i < rows; i++) {
+            pairs.add(studentIds[i] + ":" + bookIds[i]);
+        }
+        RecommendationEngine engine = engine();
+        engine.rebuild(studentIds, bookIds, rows);
+        int checked = 0;
+        for (int i = rows; i < rows + updates; i++) {
+            engine.apply(List.of(new RecommendationEngine.Loan(studentIds[i], bookIds[i])));
+            if (!pairs.add(studentIds[i] + ":" + bookIds[i])) {
+                continue;
+            }
+            checked++;
+            RecommendationEngine rebuilt = engine();
+            rebuilt.rebuild(studentIds, bookIds, i + 1);
+            assertEquals(rebuilt.recommend(bookIds[i], 10), engine.recommend(bookIds[i], 10));
+        }
+        assertTrue(checked > updates / 2);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void buildsAndUpdatesAtScale() {
+        long[] studentIds = new long[ROWS + UPDATES];
+        long[] bookIds = new long[ROWS + UPDATES];
+        generate(studentIds, bookIds, ROWS + UPDATES, new Random(42));
+
+        RecommendationEngine engine = engine();
+        // Warm up the JIT on a slice so the timed build isn't mostly interpreted
+        engine.rebuild(studentIds, bookIds, Math.min(ROWS, 200_000));
+
+        long start = System.nanoTime();
+        engine.rebuild(studentIds, bookIds, ROWS);
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+
+        Random random = new Random(7);
+        long found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            found += engine.recommend(1 + random.nextInt(BOOKS), 10).size();
+        }
+        double lookupSeconds = (System.nanoTime() - start) / 1e9;
+
+        // One loan at a time, as they arrive after commit
+        start = System.nanoTime();
+        for (int i = ROWS; i < ROWS + UPDATES; i++) {
+            engine.apply(List.of(new RecommendationEngine.Loan(studentIds[i], bookIds[i])));
+        }
+        double updateSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Rescored books match a build that saw the same loans from the start
+        long lastBook = bookIds[ROWS + UPDATES - 1];
+        List<RecommendationEngine.Recommendation> updated = engine.recommend(lastBook, 10);
+        engine = null;
+        RecommendationEngine rebuilt = engine();
+        rebuilt.rebuild(studentIds, bookIds, ROWS + UPDATES);
+        assertEquals(rebuilt.recommend(lastBook, 10), updated);
+
+        System.out.printf("Recommendation benchmark, %,d issue rows, %,d students, %,d books, %d parallelism:%n",
+            ROWS, STUDENTS, BOOKS, ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("  full build:          %8.2f s%n", buildSeconds);
+        System.out.printf("  lookup:              %8.0f lookups/s (%d neighbours on average)%n",
+            LOOKUPS / lookupSeconds, found / LOOKUPS);
+        System.out.printf("  incremental update:  %8.2f ms per loan%n", updateSeconds * 1000 / UPDATES);
+        assertFalse(updated.isEmpty());
+    }
+
+    private static RecommendationEngine engine() {
+        RecommendationEngine engine = new RecommendationEngine();
+        ReflectionTestUtils.setField(engine, "topK", 10);
+        ReflectionTestUtils.setField(engine, "maxBasket", 500);
+        return engine;
+    }
+
+    // Each row is a random student and a book drawn with probability proportional to 1 / rank
+    private static void generate(long[] studentIds, long[] bookIds, int rows, Random random) {
+        double[] cumulative = new double[BOOKS];
+        double total = 0;
+        for (int rank = 0; rank < BOOKS; rank++) {
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        for (int i = 0; i < rows; i++) {
+            int at = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            studentIds[i] = 1 + random.nextInt(STUDENTS);
+            bookIds[i] = 1 + Math.min(at >= 0 ? at : -at - 1, BOOKS - 1);
+        }
+    }
+}
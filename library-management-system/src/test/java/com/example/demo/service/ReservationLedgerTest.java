@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import com.example.demo.model.Issue;
+import com.example.demo.model.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.IssueRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.ReservationLedger.Admission;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationLedgerTest {
+
+    @Autowired
+    private ReservationLedger ledger;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void admitsAsManyPendingRequestsAsThereAreCopies() {
+        Long bookId = book(2);
+        int before = ledger.pendingRequests();
+
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 1L));
+        assertEquals(Admission.DUPLICATE, ledger.tryReserve(bookId, 1L));
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 2L));
+        // Both copies are spoken for until a request is decided
+        assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(bookId, 3L));
+        assertEquals(before + 2, ledger.pendingRequests());
+        assertEquals(Admission.NOT_FOUND, ledger.tryReserve(Long.MAX_VALUE, 1L));
+    }
+
+    @Test
+    void oneCopyTakesOnePendingRequestAtATime() {
+        Long bookId = book(1);
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 1L));
+        assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(bookId, 2L));
+
+        // Rejected: the copy is free again and the student may ask again
+        ledger.release(bookId, 1L);
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 2L));
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(book(1), 1L));
+    }
+
+    @Test
+    void approvalTurnsTheReservationIntoALoanUntilReturned() {
+        Long bookId = book(1);
+        int before = ledger.pendingRequests();
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 1L));
+
+        ledger.onApproved(bookId, 1L);
+        assertEquals(before, ledger.pendingRequests());
+        assertEquals(Admission.DUPLICATE, ledger.tryReserve(bookId, 1L));
+        assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(bookId, 2L));
+
+        ledger.onReturned(bookId, 1L);
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 2L));
+        assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(bookId, 1L));
+    }
+
+    @Test
+    void aDuplicateRefusedByTheDatabaseKeepsTheExistingHold() {
+        Long bookId = book(3);
+        assertEquals(Admission.ADMITTED, ledger.tryReserve(bookId, 1L));
+        ledger.releaseDuplicate(bookId);
+        assertEquals(Admission.DUPLICATE, ledger.tryReserve(bookId, 1L));
+    }
+
+    @Test
+    void rebuildRestoresPendingRequestsAndLoansFromTheDatabase() {
+        Book book = bookRepository.findById(book(2)).orElseThrow();
+        User pendingStudent = student("ledger-pending");
+        User borrower = student("ledger-borrower");
+        issue(book, pendingStudent, "PENDING");
+        issue(book, borrower, "ISSUED");
+        book.setAvailable(1);
+        bookRepository.save(book);
+
+        ledger.rebuild();
+        int rebuilt = ledger.pendingRequests();
+        assertEquals(issueRepository.findActiveHolds().stream().filter(h -> "PENDING".equals(h.getStatus())).count(),
+                rebuilt);
+        assertEquals(Admission.DUPLICATE, ledger.tryReserve(book.getId(), pendingStudent.getId()));
+        assertEquals(Admission.DUPLICATE, ledger.tryReserve(book.getId(), borrower.getId()));
+        // The one copy left on the shelf is already reserved by the pending request
+        assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(book.getId(), -1L));
+        assertEquals(rebuilt, ledger.pendingRequests());
+    }
+
+    @Test
+    void aLoanLandingWhileTheCountLoadsIsNotLost() {
+        Long bookId = book(1);
+        BookRepository real = (BookRepository) ReflectionTestUtils.getField(ledger, "bookRepository");
+        AtomicBoolean first = new AtomicBoolean(true);
+        // Between the first read and its install, an admin issues the only copy
+        BookRepository racing = (BookRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {BookRepository.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if ("findAvailableById".equals(method.getName()) && first.getAndSet(false)) {
+                        Book book = real.findById(bookId).orElseThrow();
+                        book.setAvailable(0);
+                        real.save(book);
+                        ledger.onIssued(bookId, 1L);
+                    }
+                    return result;
+                });
+        ReflectionTestUtils.setField(ledger, "bookRepository", racing);
+        try {
+            assertEquals(Admission.UNAVAILABLE, ledger.tryReserve(bookId, 2L));
+        } finally {
+            ReflectionTestUtils.setField(ledger, "bookRepository", real);
+        }
+    }
+
+    private Long book(int copies) {
+        Book book = new Book();
+        book.setTitle("Ledger Title");
+        book.setAuthor("Ledger Author");
+        book.setQuantity(copies);
+        book.setAvailable(copies);
+        return bookRepository.save(book).getId();
+    }
+
+    private User student(String username) {
+        User student = new User();
+        student.setUsername(username);
+        student.setRollNumber(username);
+        student.setPassword("secret");
+        student.setRole("STUDENT");
+        student.setStatus("APPROVED");
+        return userRepository.save(student);
+    }
+
+    private void issue(Book book, User student, String status) {
+        Issue issue = new Issue();
+        issue.setBook(book);
+        issue.setStudent(student);
+        issue.setStatus(status);
+        issue.setRequestedDate(LocalDate.now());
+        issueRepository.save(issue);
+    }
+}
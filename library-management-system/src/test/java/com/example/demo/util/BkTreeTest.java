@@ -0,0 +1,88 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BkTreeTest {
+
+    @Test
+    void levenshteinDistanceGivesUpPastTheLimit() {
+        assertEquals(0, BkTree.distance("book", "book", 2));
+        assertEquals(1, BkTree.distance("book", "boot", 2));
+        assertEquals(2, BkTree.distance("tolkien", "tolkein", 2));
+        assertEquals(3, BkTree.distance("kitten", "sitting", 5));
+        assertEquals(2, BkTree.distance("kitten", "sitting", 1));
+        assertEquals(3, BkTree.distance("a", "abcdef", 2));
+    }
+
+    @Test
+    void findsLiveWordsWithinTheDistance() {
+        BkTree tree = new BkTree();
+        for (String word : List.of("book", "boot", "boat", "cook", "brook", "library")) {
+            tree.add(word);
+        }
+        assertEquals(Set.of("book"), words(tree.search("book", 0)));
+        assertEquals(Set.of("book", "boot", "cook", "brook"), words(tree.search("book", 1)));
+        assertEquals(Set.of("book", "boot", "boat", "cook", "brook"), words(tree.search("book", 2)));
+        assertEquals(Set.of(new BkTree.Match("brook", 0), new BkTree.Match("book", 1)),
+                Set.copyOf(tree.search("brook", 1)));
+    }
+
+    @Test
+    void aWordStaysUntilEveryReferenceIsRemoved() {
+        BkTree tree = new BkTree();
+        tree.add("dune");
+        tree.add("dune");
+        tree.add("dust");
+        assertEquals(2, tree.size());
+
+        tree.remove("dune");
+        assertEquals(Set.of("dune"), words(tree.search("dune", 0)));
+        tree.remove("dune");
+        assertTrue(tree.search("dune", 0).isEmpty());
+        assertEquals(1, tree.size());
+        // Removing again or removing an unknown word changes nothing
+        tree.remove("dune");
+        tree.remove("unknown");
+        assertEquals(1, tree.size());
+
+        // A dead word comes back to life in place
+        tree.add("dune");
+        assertEquals(Set.of("dune", "dust"), words(tree.search("dune", 2)));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void rebuildsOnceDeadWordsOutnumberLiveOnes() {
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 3000; i++) {
+            tree.add("word" + i);
+        }
+        tree.add("word7");
+        for (int i = 0; i < 2000; i++) {
+            tree.remove("word" + i);
+        }
+
+        // 2000 dead against 1000 live passed the threshold partway through
+        int dead = (int) ReflectionTestUtils.getField(tree, "dead");
+        assertTrue(dead < 1024, "tree was not rebuilt, " + dead + " dead nodes");
+        assertEquals(1001, tree.size());
+        // Reference counts survive the rebuild: word7 was added twice and removed once
+        assertEquals(Set.of("word7"), words(tree.search("word7", 0)));
+        tree.remove("word7");
+        assertTrue(tree.search("word7", 0).isEmpty());
+        assertEquals(Set.of("word2999"), words(tree.search("word2999", 0)));
+        assertTrue(tree.search("word1999", 0).isEmpty());
+    }
+
+    private static Set<String> words(List<BkTree.Match> matches) {
+        return matches.stream().map(BkTree.Match::word).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    @Test
+    void keepsTheFirstValueAcrossGrowth() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(LongIntHashMap.MISSING, map.putIfAbsent(i * 31L, i));
+        }
+        assertEquals(7, map.putIfAbsent(7 * 31L, 99));
+        assertEquals(1000, map.size());
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, map.get(i * 31L));
+        }
+        assertEquals(LongIntHashMap.MISSING, map.get(5));
+    }
+
+    @Test
+    void zeroIsNeverAKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+        map.putIfAbsent(1, 0);
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(0, 1));
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.putIfAbsent(1, 10);
+        LongIntHashMap copy = map.copy();
+        map.putIfAbsent(2, 20);
+        assertEquals(10, copy.get(1));
+        assertEquals(LongIntHashMap.MISSING, copy.get(2));
+        assertEquals(20, map.get(2));
+    }
+}